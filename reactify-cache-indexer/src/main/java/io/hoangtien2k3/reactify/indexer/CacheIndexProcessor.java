@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.indexer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * <p>
+ * CacheIndexProcessor class.
+ * </p>
+ *
+ * Writes every method annotated with {@code @Cache2L} or {@code @LocalCache} to
+ * {@code META-INF/reactify/cache.index} so that the cache stores can resolve
+ * them at startup without scanning the classpath. Each line has the form
+ * {@code annotation=declaringClass#method(paramType,...)}.
+ *
+ * @author hoangtien2k3
+ */
+@SupportedAnnotationTypes({CacheIndexProcessor.CACHE_2L, CacheIndexProcessor.LOCAL_CACHE})
+public class CacheIndexProcessor extends AbstractProcessor {
+
+    /** Constant <code>INDEX_LOCATION="META-INF/reactify/cache.index"</code> */
+    public static final String INDEX_LOCATION = "META-INF/reactify/cache.index";
+
+    static final String CACHE_2L = "io.hoangtien2k3.reactify.aop.cache.Cache2L";
+    static final String LOCAL_CACHE = "io.hoangtien2k3.reactify.annotations.LocalCache";
+
+    private final Set<String> entries = new TreeSet<>();
+    private boolean previousEntriesLoaded = false;
+
+    /** {@inheritDoc} */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!previousEntriesLoaded) {
+            readPreviousEntries();
+            previousEntriesLoaded = true;
+        }
+        for (TypeElement annotation : annotations) {
+            String annotationName = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    entries.add(annotationName + "=" + toMethodEntry((ExecutableElement) element));
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !entries.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private String toMethodEntry(ExecutableElement method) {
+        TypeElement declaringClass = (TypeElement) method.getEnclosingElement();
+        String parameterTypes = method.getParameters().stream()
+                .map(parameter -> processingEnv
+                        .getTypeUtils()
+                        .erasure(parameter.asType())
+                        .toString())
+                .collect(Collectors.joining(","));
+        return processingEnv.getElementUtils().getBinaryName(declaringClass) + "#" + method.getSimpleName() + "("
+                + parameterTypes + ")";
+    }
+
+    /**
+     * Keeps the entries of an earlier (incremental) compilation whose declaring
+     * class still exists, the methods of recompiled classes are added again by
+     * the current round.
+     */
+    private void readPreviousEntries() {
+        try {
+            FileObject previous =
+                    processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(previous.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (isExistingClass(line)) {
+                        entries.add(line);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            // no index from a previous compilation
+        }
+    }
+
+    private boolean isExistingClass(String entry) {
+        int start = entry.indexOf('=');
+        int end = entry.indexOf('#');
+        if (start < 0 || end < start) {
+            return false;
+        }
+        String className = entry.substring(start + 1, end).replace('$', '.');
+        return processingEnv.getElementUtils().getTypeElement(className) != null;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject index =
+                    processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = index.openWriter()) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write cache index: " + ex);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.type.ArrayType;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.databind.type.MapType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <p>
+ * BoundedJsonWriter class.
+ * </p>
+ *
+ * Serializes a value to JSON with a bounded cost, for logging. The generator
+ * streams into a reused buffer of {@code maxBytes} and the serialization stops
+ * as soon as the buffer is full, the result then ends with {@link #TRUNCATED}.
+ * Collections, maps and object arrays larger than {@code maxElements} are
+ * written with their first elements followed by a {@code "...(n more)"}
+ * element, the others are never visited. A large value so costs about
+ * {@code maxBytes} instead of its full size. Thread safe, the buffer is per
+ * thread.
+ *
+ * @author hoangtien2k3
+ */
+public final class BoundedJsonWriter {
+    /**
+     * Ends a JSON cut at the maximum size.
+     */
+    public static final String TRUNCATED = "...(truncated)";
+
+    private static final byte[] TRUNCATED_BYTES = TRUNCATED.getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final ThreadLocal<LimitedBuffer> buffers;
+
+    /**
+     * <p>
+     * Constructor for BoundedJsonWriter.
+     * </p>
+     *
+     * @param objectMapper
+     *            the {@link com.fasterxml.jackson.databind.ObjectMapper} whose
+     *            configuration is used, it is copied and left unchanged
+     * @param maxBytes
+     *            the maximum size of the JSON in UTF-8 bytes, marker included
+     * @param maxElements
+     *            the maximum number of elements written of a collection, a map
+     *            or an array
+     */
+    public BoundedJsonWriter(ObjectMapper objectMapper, int maxBytes, int maxElements) {
+        this.objectMapper = objectMapper
+                .copy()
+                .registerModule(new SimpleModule("BoundedJsonWriter")
+                        .setSerializerModifier(new LimitedElementsModifier(maxElements)));
+        int capacity = Math.max(0, maxBytes - TRUNCATED_BYTES.length);
+        this.buffers = ThreadLocal.withInitial(() -> new LimitedBuffer(capacity));
+    }
+
+    /**
+     * <p>
+     * write.
+     * </p>
+     *
+     * @param value
+     *            a {@link java.lang.Object} object
+     * @return the JSON of the value, truncated to the maximum size
+     * @throws java.io.IOException
+     *             if the value can not be serialized
+     */
+    public String write(Object value) throws IOException {
+        LimitedBuffer buffer = buffers.get();
+        buffer.reset();
+        try (JsonGenerator generator = objectMapper.createGenerator(buffer)) {
+            objectMapper.writeValue(generator, value);
+        } catch (IOException e) {
+            if (!buffer.isFull()) {
+                throw e;
+            }
+        }
+        return buffer.isFull() ? buffer.toUtf8String() + TRUNCATED : buffer.toUtf8String();
+    }
+
+    /**
+     * Keeps the first bytes written. The write filling it throws to abort the
+     * serialization, the later ones, such as the flush of the generator closing
+     * the cut JSON, are dropped.
+     */
+    private static final class LimitedBuffer extends OutputStream {
+        private final byte[] bytes;
+        private int count;
+        private boolean full;
+
+        private LimitedBuffer(int maxBytes) {
+            this.bytes = new byte[maxBytes];
+        }
+
+        private void reset() {
+            count = 0;
+            full = false;
+        }
+
+        private boolean isFull() {
+            return full;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (full) {
+                return;
+            }
+            if (count == bytes.length) {
+                full = true;
+                throw new BufferFullException();
+            }
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (full) {
+                return;
+            }
+            int length = Math.min(len, bytes.length - count);
+            System.arraycopy(b, off, bytes, count, length);
+            count += length;
+            if (length < len) {
+                full = true;
+                throw new BufferFullException();
+            }
+        }
+
+        /**
+         * The bytes written, without the last character if it was cut.
+         */
+        private String toUtf8String() {
+            int end = count;
+            if (full && end > 0) {
+                int start = end - 1;
+                while (start > 0 && (bytes[start] & 0xC0) == 0x80) {
+                    start--;
+                }
+                if (start + lengthOf(bytes[start]) > end) {
+                    end = start;
+                }
+            }
+            return new String(bytes, 0, end, StandardCharsets.UTF_8);
+        }
+
+        private static int lengthOf(byte lead) {
+            if ((lead & 0x80) == 0) {
+                return 1;
+            }
+            if ((lead & 0xE0) == 0xC0) {
+                return 2;
+            }
+            return (lead & 0xF0) == 0xE0 ? 3 : 4;
+        }
+    }
+
+    /**
+     * Aborts the serialization, thrown at most once per write, without a stack
+     * trace.
+     */
+    private static final class BufferFullException extends IOException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class LimitedElementsModifier extends BeanSerializerModifier {
+        private final int maxElements;
+
+        private LimitedElementsModifier(int maxElements) {
+            this.maxElements = maxElements;
+        }
+
+        @Override
+        public JsonSerializer<?> modifyCollectionSerializer(
+                SerializationConfig config,
+                CollectionType valueType,
+                BeanDescription beanDesc,
+                JsonSerializer<?> serializer) {
+            return new LimitedElementsSerializer(serializer, maxElements);
+        }
+
+        @Override
+        public JsonSerializer<?> modifyMapSerializer(
+                SerializationConfig config, MapType valueType, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            return new LimitedElementsSerializer(serializer, maxElements);
+        }
+
+        @Override
+        public JsonSerializer<?> modifyArraySerializer(
+                SerializationConfig config,
+                ArrayType valueType,
+                BeanDescription beanDesc,
+                JsonSerializer<?> serializer) {
+            // primitive arrays are flat, the byte limit bounds them
+            return valueType.getContentType().isPrimitive()
+                    ? serializer
+                    : new LimitedElementsSerializer(serializer, maxElements);
+        }
+    }
+
+    /**
+     * Writes a collection, a map or an object array with the serializer of
+     * Jackson when it is small enough, else writes its first elements itself.
+     */
+    private static final class LimitedElementsSerializer extends StdSerializer<Object>
+            implements ContextualSerializer, ResolvableSerializer {
+        private final JsonSerializer<Object> delegate;
+        private final int maxElements;
+
+        @SuppressWarnings("unchecked")
+        private LimitedElementsSerializer(JsonSerializer<?> delegate, int maxElements) {
+            super(Object.class);
+            this.delegate = (JsonSerializer<Object>) delegate;
+            this.maxElements = maxElements;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value instanceof Map<?, ?> map && map.size() > maxElements) {
+                gen.writeStartObject(value);
+                Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+                for (int i = 0; i < maxElements; i++) {
+                    Map.Entry<?, ?> entry = entries.next();
+                    provider.defaultSerializeField(String.valueOf(entry.getKey()), entry.getValue(), gen);
+                }
+                gen.writeStringField("...", (map.size() - maxElements) + " more");
+                gen.writeEndObject();
+            } else if (value instanceof Collection<?> collection && collection.size() > maxElements) {
+                writeArray(collection, collection.size(), gen, provider);
+            } else if (value instanceof Object[] array && array.length > maxElements) {
+                writeArray(Arrays.asList(array), array.length, gen, provider);
+            } else {
+                delegate.serialize(value, gen, provider);
+            }
+        }
+
+        private void writeArray(Iterable<?> elements, int size, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartArray(elements, maxElements + 1);
+            Iterator<?> iterator = elements.iterator();
+            for (int i = 0; i < maxElements; i++) {
+                provider.defaultSerializeValue(iterator.next(), gen);
+            }
+            gen.writeString("...(" + (size - maxElements) + " more)");
+            gen.writeEndArray();
+        }
+
+        @Override
+        public void serializeWithType(
+                Object value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+                throws IOException {
+            delegate.serializeWithType(value, gen, provider, typeSer);
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Object value) {
+            return delegate.isEmpty(provider, value);
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property)
+                throws JsonMappingException {
+            if (!(delegate instanceof ContextualSerializer contextual)) {
+                return this;
+            }
+            JsonSerializer<?> serializer = contextual.createContextual(prov, property);
+            return serializer == delegate ? this : new LimitedElementsSerializer(serializer, maxElements);
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer resolvable) {
+                resolvable.resolve(provider);
+            }
+        }
+    }
+}
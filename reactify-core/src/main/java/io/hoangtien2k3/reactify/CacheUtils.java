@@ -19,6 +19,7 @@ import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.hoangtien2k3.reactify.aop.cache.metrics.Cache2LMetrics;
 import jakarta.validation.constraints.NotNull;
 import java.time.Duration;
 import java.util.function.Function;
@@ -117,12 +118,14 @@ public class CacheUtils {
         return Mono.defer(() -> monoFn.apply(FIXED_KEY));
     }
 
-    // TODO : close cache metrics to build test local
     /**
      * <p>
      * caffeine.
      * </p>
      *
+     * The cache records its stats to the Micrometer registry under the cache
+     * name.
+     *
      * @param duration
      *            a {@link java.time.Duration} object
      * @param maximumSize
@@ -142,18 +145,7 @@ public class CacheUtils {
             @NonNegative long maximumSize,
             @NotNull Class<?> cacheClass,
             @NonNull String cacheName) {
-        Cache<K, V> cache = Caffeine.newBuilder()
-                .expireAfterWrite(duration)
-                .recordStats()
-                .maximumSize(maximumSize)
-                .build();
-        // CacheMetricsCollector cacheMetricsCollector =
-        // ApplicationContextProvider.getApplicationContext().getBean(CacheMetricsCollector.class);
-        // if(cacheMetricsCollector == null) {
-        // log.error("Not found cacheMetricCollector");
-        // } else {
-        // cacheMetricsCollector.addCache(cacheName, cache);
-        // }
-        return cache;
+        return Cache2LMetrics.build(
+                Caffeine.newBuilder().expireAfterWrite(duration).maximumSize(maximumSize), cacheName);
     }
 }
@@ -15,6 +15,8 @@
  */
 package io.hoangtien2k3.reactify.annotations;
 
+import io.hoangtien2k3.reactify.aop.cache.key.CacheKeyGenerator;
+import io.hoangtien2k3.reactify.aop.cache.key.DefaultCacheKeyGenerator;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -35,4 +37,49 @@ public @interface LocalCache {
     int maxRecord() default 1000;
 
     boolean autoCache() default false;
+
+    /**
+     * Age in minutes after which a cached entry is reloaded in the background on
+     * its next access while the stale value is still served. Must be less than
+     * {@code durationInMinute}, 0 disables refresh-ahead.
+     *
+     * @return the refresh age in minutes
+     */
+    int refreshAfterInMinute() default 0;
+
+    /**
+     * Generator of the local and global keys of the cached entries, it must have
+     * a public no-arg constructor.
+     *
+     * @return the key generator type
+     */
+    Class<? extends CacheKeyGenerator> keyGenerator() default DefaultCacheKeyGenerator.class;
+
+    /**
+     * Time in seconds to remember that the method returned no value, an empty
+     * {@code Mono} or an empty {@code Optional}, so that repeated lookups of a
+     * missing key do not reach the origin. Keep it short, a value created in the
+     * meantime is only seen once it expires. 0 disables negative caching.
+     *
+     * @return the negative entry duration in seconds
+     */
+    int negativeDurationInSecond() default 0;
+
+    int negativeMaxRecord() default 1000;
+
+    /**
+     * Bound the cache by the estimated size of its entries in bytes instead of
+     * {@code maxRecord}, 0 bounds it by {@code maxRecord}.
+     *
+     * @return the maximum weight of the cache in bytes
+     */
+    long maxWeightBytes() default 0;
+
+    /**
+     * Keep the {@code cacheWarmUp} health indicator DOWN until the startup load
+     * of this {@code autoCache} method succeeded.
+     *
+     * @return true if the readiness waits for this cache
+     */
+    boolean criticalWarmUp() default false;
 }
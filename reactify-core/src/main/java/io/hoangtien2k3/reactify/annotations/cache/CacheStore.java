@@ -16,75 +16,28 @@
 package io.hoangtien2k3.reactify.annotations.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.Scheduler;
-import io.hoangtien2k3.reactify.annotations.LocalCache;
+import io.hoangtien2k3.reactify.aop.cache.Cache2LStore;
+import io.hoangtien2k3.reactify.aop.cache.CacheInfo;
 import java.lang.reflect.Method;
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
-import javax.annotation.PostConstruct;
-import lombok.extern.slf4j.Slf4j;
-import org.reflections.Reflections;
-import org.reflections.scanners.Scanners;
-import org.springframework.context.event.ContextRefreshedEvent;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.stereotype.Component;
 
 /**
  * <p>
  * CacheStore class.
  * </p>
  *
+ * The {@link io.hoangtien2k3.reactify.annotations.LocalCache} caches are built
+ * by {@link Cache2LStore} and served by the same aspect as the
+ * {@link io.hoangtien2k3.reactify.aop.cache.Cache2L} caches, this class only
+ * forwards to it.
+ *
  * @author hoangtien2k3
+ * @deprecated use {@link Cache2LStore}
  */
-@Slf4j
-@Component
-public class CacheStore {
-
-    // private static final CacheMetricsCollector CACHE_METRICS_COLLECTOR = new
-    // CacheMetricsCollector().register();
-    private static final HashMap<String, Cache<Object, Object>> caches = new HashMap<>();
-    private static final Set<Method> autoLoadMethods = new HashSet<>();
-    private static final String reflectionPath = "com.ezbuy";
+@Deprecated
+public final class CacheStore {
 
-    @PostConstruct
-    private static void init() {
-        log.info("Start initializing cache");
-        Reflections reflections = new Reflections(reflectionPath, Scanners.MethodsAnnotated);
-        Set<Method> methods =
-                reflections.get(Scanners.MethodsAnnotated.with(LocalCache.class).as(Method.class));
-        for (Method method : methods) {
-            String className = method.getDeclaringClass().getSimpleName();
-            LocalCache localCache = method.getAnnotation(LocalCache.class);
-            Integer maxRecord = localCache.maxRecord();
-            Integer durationInMinute = localCache.durationInMinute();
-            String cacheName = className + "." + method.getName();
-            boolean autoLoad = localCache.autoCache();
-            Cache<Object, Object> cache;
-            if (autoLoad && (method.getParameterCount() == 0)) {
-                cache = Caffeine.newBuilder()
-                        .scheduler(Scheduler.systemScheduler())
-                        .expireAfterWrite(Duration.ofMinutes(durationInMinute))
-                        .recordStats()
-                        .maximumSize(maxRecord)
-                        .removalListener(new CustomizeRemovalListener(method))
-                        .build();
-                autoLoadMethods.add(method);
-            } else {
-                cache = Caffeine.newBuilder()
-                        .expireAfterWrite(Duration.ofMinutes(durationInMinute))
-                        .recordStats()
-                        .maximumSize(maxRecord)
-                        .build();
-            }
-            caches.put(cacheName, cache);
-            // CACHE_METRICS_COLLECTOR.addCache(cacheName, cache);
-        }
-        log.info("Finish initializing {} cache", caches.size());
-    }
+    private CacheStore() {}
 
     /**
      * <p>
@@ -95,28 +48,32 @@ public class CacheStore {
      *            a {@link java.lang.String} object
      * @return a {@link com.github.benmanes.caffeine.cache.Cache} object
      */
-    public static Cache getCache(String key) {
-        return caches.get(key);
+    public static Cache<Object, Object> getCache(String key) {
+        return Cache2LStore.getCache(key);
+    }
+
+    /**
+     * <p>
+     * getCacheInfo.
+     * </p>
+     *
+     * @param method
+     *            a {@link java.lang.reflect.Method} object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object
+     */
+    public static CacheInfo getCacheInfo(Method method) {
+        return Cache2LStore.getCacheInfo(method);
     }
 
     /**
      * <p>
-     * autoLoad.
+     * getAutoLoadMethods.
      * </p>
      *
-     * @param event
-     *            a {@link org.springframework.context.event.ContextRefreshedEvent}
-     *            object
+     * @return the no-arg methods whose cache is loaded on startup and reloaded
+     *         on eviction
      */
-    @Async
-    @EventListener
-    public void autoLoad(ContextRefreshedEvent event) {
-        if (!autoLoadMethods.isEmpty()) {
-            log.info("Start auto load {} cache", autoLoadMethods.size());
-            for (Method method : autoLoadMethods) {
-                CacheUtils.invokeMethod(method);
-            }
-            log.info("Finish auto load cache");
-        }
+    public static Set<Method> getAutoLoadMethods() {
+        return Cache2LStore.getAutoLoadMethods();
     }
 }
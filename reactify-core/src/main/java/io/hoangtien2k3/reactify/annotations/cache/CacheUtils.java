@@ -1,60 +0,0 @@
-/*
- * Copyright 2024 the original author Hoàng Anh Tiến.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      https://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package io.hoangtien2k3.reactify.annotations.cache;
-
-import io.hoangtien2k3.reactify.config.ApplicationContextProvider;
-import java.lang.reflect.Method;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-import reactor.core.publisher.Mono;
-
-/**
- * <p>
- * CacheUtils class.
- * </p>
- *
- * @author hoangtien2k3
- */
-@Slf4j
-@Component
-@RequiredArgsConstructor
-public class CacheUtils {
-
-    /**
-     * <p>
-     * invokeMethod.
-     * </p>
-     *
-     * @param method
-     *            a {@link java.lang.reflect.Method} object
-     */
-    public static void invokeMethod(Method method) {
-        try {
-            Class declaringClass = method.getDeclaringClass();
-            Object t = ApplicationContextProvider.getApplicationContext().getBean(declaringClass);
-            Mono<Object> rs = (Mono<Object>) method.invoke(t);
-            rs.subscribe();
-        } catch (Exception exception) {
-            log.error(
-                    "Error when autoload cache {}.{}",
-                    method.getDeclaringClass().getSimpleName(),
-                    method.getName(),
-                    exception.getMessage(),
-                    exception);
-        }
-    }
-}
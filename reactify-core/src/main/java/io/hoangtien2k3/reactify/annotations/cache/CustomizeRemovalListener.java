@@ -1,50 +0,0 @@
-/*
- * Copyright 2024 the original author Hoàng Anh Tiến.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      https://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package io.hoangtien2k3.reactify.annotations.cache;
-
-import com.github.benmanes.caffeine.cache.RemovalCause;
-import com.github.benmanes.caffeine.cache.RemovalListener;
-import java.lang.reflect.Method;
-import lombok.AllArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.checkerframework.checker.nullness.qual.NonNull;
-import org.checkerframework.checker.nullness.qual.Nullable;
-
-/**
- * <p>
- * CustomizeRemovalListener class.
- * </p>
- *
- * @author hoangtien2k3
- */
-@Slf4j
-@AllArgsConstructor
-public class CustomizeRemovalListener implements RemovalListener {
-    private Method method;
-
-    /** {@inheritDoc} */
-    @Override
-    public void onRemoval(@Nullable Object key, @Nullable Object value, @NonNull RemovalCause removalCause) {
-        if (removalCause.wasEvicted()) {
-            log.info(
-                    "Cache {}.{} was evicted because {}",
-                    method.getDeclaringClass().getSimpleName(),
-                    method.getName(),
-                    removalCause);
-            CacheUtils.invokeMethod(method);
-        }
-    }
-}
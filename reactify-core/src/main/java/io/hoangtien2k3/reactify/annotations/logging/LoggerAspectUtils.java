@@ -45,10 +45,10 @@ import reactor.util.context.Context;
 @RequiredArgsConstructor
 public class LoggerAspectUtils {
 
-    private static final Logger logPerf = LoggerFactory.getLogger("perfLogger");
     private static final Logger log = LoggerFactory.getLogger("LoggerAspect");
 
     private final Tracer tracer;
+    private final PerfLogSampler sampler;
 
     @Value("${debug.detailException:true}")
     private boolean detailException;
@@ -98,11 +98,31 @@ public class LoggerAspectUtils {
         var result = joinPoint.proceed();
         if (result instanceof Mono) {
             return logMonoResult(
-                    joinPoint, start, (Mono) result, newSpan, name, logType, actionType, logOutput, logInput, title);
+                    joinPoint,
+                    method,
+                    start,
+                    (Mono) result,
+                    newSpan,
+                    name,
+                    logType,
+                    actionType,
+                    logOutput,
+                    logInput,
+                    title);
         }
         if (result instanceof Flux) {
             return logFluxResult(
-                    joinPoint, start, (Flux) result, newSpan, name, logType, actionType, logOutput, logInput, title);
+                    joinPoint,
+                    method,
+                    start,
+                    (Flux) result,
+                    newSpan,
+                    name,
+                    logType,
+                    actionType,
+                    logOutput,
+                    logInput,
+                    title);
         } else {
             return result;
         }
@@ -110,6 +130,7 @@ public class LoggerAspectUtils {
 
     private Mono logMonoResult(
             ProceedingJoinPoint joinPoint,
+            Method method,
             long start,
             Mono result,
             Span newSpan,
@@ -126,9 +147,9 @@ public class LoggerAspectUtils {
                         args = joinPoint.getArgs();
                     }
                     if (logOutput) {
-                        logPerf(contextRef, newSpan, name, start, "0", o, logType, actionType, args, title);
+                        logPerf(contextRef, method, newSpan, name, start, "0", o, logType, actionType, args, title);
                     } else {
-                        logPerf(contextRef, newSpan, name, start, "0", null, logType, actionType, args, title);
+                        logPerf(contextRef, method, newSpan, name, start, "0", null, logType, actionType, args, title);
                     }
                 })
                 .contextWrite(context -> {
@@ -145,15 +166,16 @@ public class LoggerAspectUtils {
                     else log.error(o.toString());
 
                     if (o instanceof BusinessException) {
-                        logPerf(contextRef, newSpan, name, start, "0", o, logType, actionType, null, title);
+                        logPerf(contextRef, method, newSpan, name, start, "0", o, logType, actionType, null, title);
                     } else {
-                        logPerf(contextRef, newSpan, name, start, "1", o, logType, actionType, null, title);
+                        logPerf(contextRef, method, newSpan, name, start, "1", o, logType, actionType, null, title);
                     }
                 });
     }
 
     private Flux logFluxResult(
             ProceedingJoinPoint joinPoint,
+            Method method,
             long start,
             Flux result,
             Span newSpan,
@@ -165,7 +187,7 @@ public class LoggerAspectUtils {
             String title) {
         var contextRef = new AtomicReference<Context>();
         return result.doFinally(o -> {
-                    logPerf(contextRef, newSpan, name, start, "1", null, logType, actionType, null, title);
+                    logPerf(contextRef, method, newSpan, name, start, "1", null, logType, actionType, null, title);
                 })
                 .contextWrite(context -> {
                     var currContext = (Context) context;
@@ -177,20 +199,13 @@ public class LoggerAspectUtils {
                     return context;
                 })
                 .doOnError(o -> {
-                    logPerf(contextRef, newSpan, name, start, "0", o, logType, actionType, null, title);
+                    logPerf(contextRef, method, newSpan, name, start, "0", o, logType, actionType, null, title);
                 });
     }
 
-    private void logPerf(
-            AtomicReference<Context> contextRef, Span newSpan, String name, Long start, String result, Object o) {
-        newSpan.finish();
-        long duration = System.currentTimeMillis() - start;
-        if (duration < 50) return;
-        logPerf.info("{} {} {} M2 {}", name, duration, result, o == null ? "-" : o.toString());
-    }
-
     private void logPerf(
             AtomicReference<Context> contextRef,
+            Method method,
             Span newSpan,
             String name,
             Long startTime,
@@ -202,7 +217,7 @@ public class LoggerAspectUtils {
             String title) {
         newSpan.finish();
         long endTime = System.currentTimeMillis();
-        if (endTime - startTime > 50) {
+        if (sampler.sample(method, logType, endTime - startTime, obj instanceof Throwable)) {
             LoggerQueue.getInstance()
                     .addQueue(
                             contextRef,
@@ -19,9 +19,8 @@ import brave.Span;
 import io.hoangtien2k3.reactify.model.logging.LoggerDTO;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
-import lombok.Getter;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
 import reactor.util.context.Context;
 
@@ -30,19 +29,21 @@ import reactor.util.context.Context;
  * LoggerQueue class.
  * </p>
  *
+ * Hands the performance records from the request threads to the logging
+ * consumer through a lock-free {@link MpscRingBuffer}: adding a record is one
+ * CAS and never blocks, a full queue drops the record. The records must be
+ * consumed by a single thread at a time.
+ *
  * @author hoangtien2k3
  */
 @Slf4j
 public class LoggerQueue {
-    private static LoggerQueue mMe = null;
-    private ArrayBlockingQueue<LoggerDTO> myQueue = null;
-    private static final Object myLock = new Object();
-
-    @Getter
-    private int countFalse = 0;
+    private static final int CAPACITY = 100000;
+    private static final LoggerQueue INSTANCE = new LoggerQueue();
 
-    @Getter
-    private int countSuccess = 0;
+    private final MpscRingBuffer<LoggerDTO> myQueue = new MpscRingBuffer<>(CAPACITY);
+    private final LongAdder countFalse = new LongAdder();
+    private final LongAdder countSuccess = new LongAdder();
 
     /**
      * <p>
@@ -53,15 +54,10 @@ public class LoggerQueue {
      *         object
      */
     public static LoggerQueue getInstance() {
-        if (mMe == null) {
-            mMe = new LoggerQueue();
-        }
-        return mMe;
+        return INSTANCE;
     }
 
-    private LoggerQueue() {
-        myQueue = new ArrayBlockingQueue<>(100000) {};
-    }
+    private LoggerQueue() {}
 
     /**
      * <p>
@@ -69,7 +65,9 @@ public class LoggerQueue {
      * </p>
      */
     public void clearQueue() {
-        myQueue.clear();
+        while (myQueue.poll() != null) {
+            // discard
+        }
     }
 
     /**
@@ -93,11 +91,11 @@ public class LoggerQueue {
      * @return a boolean
      */
     public boolean addQueue(LoggerDTO task) {
-        if (myQueue.add(task)) {
-            countSuccess++;
+        if (task != null && myQueue.offer(task)) {
+            countSuccess.increment();
             return true;
         }
-        countFalse++;
+        countFalse.increment();
         return false;
     }
 
@@ -142,16 +140,8 @@ public class LoggerQueue {
             String actionType,
             Object[] args,
             String title) {
-        try {
-            if (myQueue.add(new LoggerDTO(
-                    contextRef, newSpan, service, startTime, endTime, result, obj, logType, actionType, args, title))) {
-                countSuccess++;
-                return true;
-            }
-        } catch (Exception ex) {
-        }
-        countFalse++;
-        return false;
+        return addQueue(new LoggerDTO(
+                contextRef, newSpan, service, startTime, endTime, result, obj, logType, actionType, args, title));
     }
 
     /**
@@ -162,13 +152,26 @@ public class LoggerQueue {
      * @return a {@link java.util.List} object
      */
     public List<LoggerDTO> getRecords() {
-        List<LoggerDTO> records = new ArrayList<>();
-        if (myQueue != null) {
-            myQueue.drainTo(records, 100000);
-        }
+        List<LoggerDTO> records = new ArrayList<>(Math.min(myQueue.size(), CAPACITY));
+        myQueue.drainTo(records, CAPACITY);
         return records;
     }
 
+    /**
+     * <p>
+     * drainTo.
+     * </p>
+     *
+     * @param records
+     *            the list receiving the records
+     * @param limit
+     *            the maximum number of records to move
+     * @return the number of records moved
+     */
+    public int drainTo(List<LoggerDTO> records, int limit) {
+        return myQueue.drainTo(records, limit);
+    }
+
     /**
      * <p>
      * getQueueSize.
@@ -180,13 +183,35 @@ public class LoggerQueue {
         return myQueue.size();
     }
 
+    /**
+     * <p>
+     * getCountSuccess.
+     * </p>
+     *
+     * @return the records added since the last reset
+     */
+    public long getCountSuccess() {
+        return countSuccess.sum();
+    }
+
+    /**
+     * <p>
+     * getCountFalse.
+     * </p>
+     *
+     * @return the records dropped since the last reset
+     */
+    public long getCountFalse() {
+        return countFalse.sum();
+    }
+
     /**
      * <p>
      * resetCount.
      * </p>
      */
     public void resetCount() {
-        countSuccess = 0;
-        countFalse = 0;
+        countSuccess.reset();
+        countFalse.reset();
     }
 }
@@ -16,23 +16,38 @@
 package io.hoangtien2k3.reactify.annotations.logging;
 
 import static io.hoangtien2k3.reactify.constants.Constants.MAX_BYTE;
+import static io.hoangtien2k3.reactify.constants.Constants.MAX_ELEMENTS;
 
+import io.hoangtien2k3.reactify.BoundedJsonWriter;
 import io.hoangtien2k3.reactify.DataUtil;
 import io.hoangtien2k3.reactify.RequestUtils;
-import io.hoangtien2k3.reactify.TruncateUtils;
 import io.hoangtien2k3.reactify.factory.ObjectMapperFactory;
 import io.hoangtien2k3.reactify.model.logging.LogField;
 import io.hoangtien2k3.reactify.model.logging.LoggerDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
@@ -41,6 +56,14 @@ import reactor.core.publisher.Mono;
  * LoggerSchedule class.
  * </p>
  *
+ * Writes the performance records of the {@link LoggerQueue} on a dedicated
+ * consumer thread. The queue is drained in batches of
+ * {@code application.perf-logging.batch-size} while records are waiting, an
+ * empty queue is polled again after at most
+ * {@code application.perf-logging.max-latency}. A batch is split in shards
+ * serialized in parallel by {@code application.perf-logging.workers} threads,
+ * each writing the inputs and outputs into its own bounded buffer.
+ *
  * @author hoangtien2k3
  */
 @Configuration
@@ -48,33 +71,142 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class LoggerSchedule {
     private static final Logger logPerf = LoggerFactory.getLogger("perfLogger");
+    private static final BoundedJsonWriter WRITER =
+            new BoundedJsonWriter(ObjectMapperFactory.getInstance(), MAX_BYTE, MAX_ELEMENTS);
+
+    private final PerfLogProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile boolean running;
+    private Thread consumer;
+    private ExecutorService workers;
+    private Counter writtenCounter;
+    private Counter failedCounter;
+    private Timer latencyTimer;
 
     /**
      * <p>
-     * scheduleSaveLogClick.
+     * start.
      * </p>
      */
-    @Scheduled(fixedDelay = 3000)
-    public void scheduleSaveLogClick() {
-        long analyId = System.currentTimeMillis();
-        int numSuccess = 0;
-        int numFalse = 0;
-        List<LoggerDTO> records = LoggerQueue.getInstance().getRecords();
-        for (LoggerDTO record : records) {
+    @PostConstruct
+    public void start() {
+        MeterRegistry registry = meterRegistry.getIfUnique(() -> Metrics.globalRegistry);
+        LoggerQueue queue = LoggerQueue.getInstance();
+        Gauge.builder("perf.log.queue.size", queue, LoggerQueue::getQueueSize)
+                .description("Performance records waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("perf.log.enqueued", queue, LoggerQueue::getCountSuccess)
+                .description("Performance records added to the queue")
+                .register(registry);
+        FunctionCounter.builder("perf.log.dropped", queue, LoggerQueue::getCountFalse)
+                .description("Performance records dropped because the queue was full")
+                .register(registry);
+        writtenCounter = Counter.builder("perf.log.written")
+                .description("Performance records written")
+                .register(registry);
+        failedCounter = Counter.builder("perf.log.failed")
+                .description("Performance records that could not be written")
+                .register(registry);
+        latencyTimer = Timer.builder("perf.log.latency")
+                .description("Delay between the end of a logged call and the write of its record")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        if (properties.getWorkers() > 1) {
+            AtomicInteger workerId = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(properties.getWorkers(), runnable -> {
+                Thread worker = new Thread(runnable, "perf-log-worker-" + workerId.incrementAndGet());
+                worker.setDaemon(true);
+                return worker;
+            });
+        }
+        running = true;
+        consumer = new Thread(this::drain, "perf-log-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * <p>
+     * stop.
+     * </p>
+     *
+     * Waits for the consumer to flush the queued records before shutting down the
+     * workers it may still be using.
+     *
+     * @throws java.lang.InterruptedException
+     *             if interrupted while waiting for the last records
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer.join(properties.getMaxLatency().toMillis() + 5000);
+            if (consumer.isAlive()) {
+                // the workers are daemon threads, leave them to the batch still in flight
+                log.warn("Performance log consumer is still flushing, records may be lost on exit");
+                return;
+            }
+        }
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    private void drain() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long maxLatencyNanos = Math.max(1, properties.getMaxLatency().toNanos());
+        List<LoggerDTO> batch = new ArrayList<>(batchSize);
+        LoggerQueue queue = LoggerQueue.getInstance();
+        while (running) {
+            if (queue.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(maxLatencyNanos);
+                continue;
+            }
+            writeShards(batch);
+        }
+        // flush what was queued before the shutdown
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeShards(batch);
+        }
+    }
+
+    /**
+     * Writes the batch, split in one contiguous shard per worker, and waits for
+     * all the shards before the next drain so that at most one batch is in
+     * memory.
+     */
+    private void writeShards(List<LoggerDTO> batch) {
+        // the flush after the shutdown stays on the consumer thread
+        int shards = workers == null || !running ? 1 : Math.min(properties.getWorkers(), batch.size());
+        if (shards <= 1) {
+            write(batch);
+        } else {
+            int shardSize = (batch.size() + shards - 1) / shards;
+            List<CompletableFuture<Void>> futures = new ArrayList<>(shards);
+            for (int from = 0; from < batch.size(); from += shardSize) {
+                List<LoggerDTO> shard = batch.subList(from, Math.min(from + shardSize, batch.size()));
+                futures.add(CompletableFuture.runAsync(() -> write(shard), workers));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        }
+        batch.clear();
+    }
+
+    private void write(List<LoggerDTO> batch) {
+        for (LoggerDTO record : batch) {
             try {
                 process(record);
-                numSuccess++;
+                writtenCounter.increment();
+                if (record.getEndTime() != null) {
+                    latencyTimer.record(System.currentTimeMillis() - record.getEndTime(), TimeUnit.MILLISECONDS);
+                }
             } catch (Exception e) {
-                numFalse++;
+                failedCounter.increment();
                 log.error("Error while handle record queue: ", e.getMessage());
             }
         }
-        // log.info("AsyncLog analyId {}: QueueSize: {}, addSuccess: {}, addFalse: {},
-        // writeSuccess:{},
-        // writeFalse:{}",
-        // analyId, records.size(), LoggerQueue.getInstance().getCountSuccess(),
-        // LoggerQueue.getInstance().getCountFalse(), numSuccess, numFalse);
-        LoggerQueue.getInstance().resetCount();
     }
 
     private void process(LoggerDTO record) {
@@ -104,7 +236,7 @@ public class LoggerSchedule {
             String inputs = null;
             try {
                 if (record.getArgs() != null) {
-                    inputs = ObjectMapperFactory.getInstance().writeValueAsString(getAgrs(record.getArgs()));
+                    inputs = WRITER.write(getAgrs(record.getArgs()));
                 }
             } catch (Exception ex) {
                 log.error("Error while handle record queue: ", ex.getMessage());
@@ -115,22 +247,16 @@ public class LoggerSchedule {
                 if (record.getResponse() instanceof Optional) {
                     Optional output = (Optional) record.getResponse();
                     if (output.isPresent()) {
-                        resStr = ObjectMapperFactory.getInstance().writeValueAsString(output.get());
+                        resStr = WRITER.write(output.get());
                     }
                 } else {
                     if (record.getResponse() != null) {
-                        resStr = ObjectMapperFactory.getInstance().writeValueAsString(record.getResponse());
+                        resStr = WRITER.write(record.getResponse());
                     }
                 }
             } catch (Exception ex) {
                 log.error("Error while handle record queue: ", ex.getMessage());
             }
-            try {
-                inputs = TruncateUtils.truncate(inputs, MAX_BYTE);
-                resStr = TruncateUtils.truncate(resStr, MAX_BYTE);
-            } catch (Exception ex) {
-                log.error("Truncate input/output error ", ex);
-            }
             logInfo(new LogField(
                     traceId,
                     requestId,
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.annotations.logging;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * MpscRingBuffer class.
+ * </p>
+ *
+ * A bounded lock-free queue for many producers and a single consumer. The
+ * slots are allocated once, each with a sequence telling whether it is free
+ * for the producer claiming that position or published for the consumer. A
+ * producer claims a position with one CAS and never waits on another, a full
+ * buffer rejects the element. Only one thread at a time may poll or drain.
+ *
+ * @param <E>
+ *            the type of the elements
+ * @author hoangtien2k3
+ */
+final class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * <p>
+     * Constructor for MpscRingBuffer.
+     * </p>
+     *
+     * @param minCapacity
+     *            the minimum capacity, rounded up to a power of two
+     */
+    MpscRingBuffer(int minCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1) << 1);
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * <p>
+     * offer.
+     * </p>
+     *
+     * @param element
+     *            a non null element
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long gap = sequences.get(index) - position;
+            if (gap == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, element);
+                    // publishes the element, the consumer reads the slot after the sequence
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (gap < 0) {
+                // the consumer has not freed the slot of the previous lap yet
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * poll.
+     * </p>
+     *
+     * @return the oldest element, null if none is published
+     */
+    E poll() {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = slots.get(index);
+        slots.lazySet(index, null);
+        // frees the slot for the producer of the next lap
+        sequences.set(index, position + capacity);
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /**
+     * <p>
+     * drainTo.
+     * </p>
+     *
+     * @param target
+     *            the list receiving the elements
+     * @param limit
+     *            the maximum number of elements to move
+     * @return the number of elements moved
+     */
+    int drainTo(List<? super E> target, int limit) {
+        int count = 0;
+        E element;
+        while (count < limit && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * <p>
+     * size.
+     * </p>
+     *
+     * @return the approximate number of elements
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    /**
+     * <p>
+     * capacity.
+     * </p>
+     *
+     * @return the number of slots
+     */
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.annotations.logging;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * PerfLogProperties class.
+ * </p>
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@ConfigurationProperties(prefix = "application.perf-logging", ignoreInvalidFields = true)
+@Data
+public class PerfLogProperties {
+    /** Records written per drain of the queue. */
+    private int batchSize = 512;
+
+    /** Longest wait of the consumer on an empty queue, the delay of a record added meanwhile. */
+    private Duration maxLatency = Duration.ofMillis(100);
+
+    /** Threads serializing the records of a batch, each takes a shard of it. */
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /** Duration above which a call is slow, slow calls and errors are always logged. */
+    private Duration slowThreshold = Duration.ofMillis(50);
+
+    /**
+     * Slow thresholds by method ({@code package.Class.method}), class or package, the most specific wins. Keys with
+     * dots are bracketed in YAML, {@code "[com.example.service]": 200ms}.
+     */
+    private Map<String, Duration> slowThresholds = new HashMap<>();
+
+    /** Share of the slowest calls of each method always logged, even under the slow threshold. */
+    private double tailRate = 0.01;
+
+    /** Share of the other calls logged. */
+    private double sampleRate = 0.001;
+
+    /** Records logged per second of each log type, 0 for no limit. */
+    private int rateLimit = 1000;
+
+    /** Records logged per second by log type, overriding {@code rateLimit}. */
+    private Map<String, Integer> rateLimits = new HashMap<>();
+}
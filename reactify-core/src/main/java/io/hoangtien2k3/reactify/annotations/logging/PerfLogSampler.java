@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.annotations.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * PerfLogSampler class.
+ * </p>
+ *
+ * Decides which calls intercepted by {@link LoggerAspect} are logged. Errors
+ * and calls over the slow threshold of their method are always logged. The
+ * slowest {@code application.perf-logging.tail-rate} of the calls of each
+ * method and a {@code application.perf-logging.sample-rate} share of the others,
+ * kept at random, are limited per second and log type, so the cost of the
+ * performance log stays bounded under load without hiding an incident.
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@RequiredArgsConstructor
+public class PerfLogSampler {
+
+    private final PerfLogProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<Method, MethodStats> methods = new ConcurrentHashMap<>();
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    /**
+     * <p>
+     * init.
+     * </p>
+     */
+    @PostConstruct
+    public void init() {
+        MeterRegistry registry = meterRegistry.getIfUnique(() -> Metrics.globalRegistry);
+        FunctionCounter.builder("perf.log.sampled.out", sampledOut, LongAdder::sum)
+                .description("Performance records skipped by sampling")
+                .register(registry);
+        FunctionCounter.builder("perf.log.rate.limited", rateLimited, LongAdder::sum)
+                .description("Performance records skipped by the rate limit of their log type")
+                .register(registry);
+    }
+
+    /**
+     * <p>
+     * sample.
+     * </p>
+     *
+     * @param method
+     *            the called method
+     * @param logType
+     *            the log type of the record
+     * @param duration
+     *            the duration of the call in milliseconds
+     * @param error
+     *            whether the call failed
+     * @return whether the record of the call is logged
+     */
+    public boolean sample(Method method, String logType, long duration, boolean error) {
+        MethodStats stats = methods.computeIfAbsent(method, this::statsOf);
+        boolean slowest = stats.record(duration);
+        if (error || duration > stats.slowThreshold) {
+            return true;
+        }
+        if (!slowest && ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            sampledOut.increment();
+            return false;
+        }
+        if (!rateLimiters.computeIfAbsent(logType, this::rateLimiterOf).tryAcquire()) {
+            rateLimited.increment();
+            return false;
+        }
+        return true;
+    }
+
+    MethodStats statsOf(Method method) {
+        Map<String, Duration> thresholds = properties.getSlowThresholds();
+        String name = method.getDeclaringClass().getName() + "." + method.getName();
+        Duration threshold = thresholds.get(name);
+        for (int dot = name.lastIndexOf('.'); threshold == null && dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+            threshold = thresholds.get(name.substring(0, dot));
+        }
+        if (threshold == null) {
+            threshold = properties.getSlowThreshold();
+        }
+        return new MethodStats(threshold.toMillis(), properties.getTailRate());
+    }
+
+    private RateLimiter rateLimiterOf(String logType) {
+        return new RateLimiter(properties.getRateLimits().getOrDefault(logType, properties.getRateLimit()));
+    }
+
+    /**
+     * Slow threshold and latency histogram of one method. The histogram has two
+     * buckets per power of two of milliseconds, every {@code WINDOW} calls the
+     * bucket starting the tail is computed again and the counts are halved, so
+     * the tail follows the recent calls. Counting is lock-free.
+     */
+    static final class MethodStats {
+        private static final int BUCKETS = 64;
+        private static final int WINDOW = 512;
+
+        final long slowThreshold;
+        private final double tailRate;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong calls = new AtomicLong();
+        private volatile int tailBucket = BUCKETS;
+
+        MethodStats(long slowThreshold, double tailRate) {
+            this.slowThreshold = slowThreshold;
+            this.tailRate = tailRate;
+        }
+
+        /**
+         * Records a call, returns whether it is in the tail of the method.
+         */
+        boolean record(long duration) {
+            int bucket = bucketOf(duration);
+            counts.incrementAndGet(bucket);
+            if (calls.incrementAndGet() % WINDOW == 0) {
+                computeTail();
+            }
+            return bucket >= tailBucket;
+        }
+
+        /**
+         * The tail starts at the lowest bucket such that the calls from it on are
+         * at most {@code tailRate} of all, so a bucket is never half kept.
+         */
+        void computeTail() {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts.get(i);
+            }
+            long tail = (long) (total * tailRate);
+            long slowest = 0;
+            int bucket = BUCKETS;
+            while (bucket > 0 && slowest + counts.get(bucket - 1) <= tail) {
+                slowest += counts.get(--bucket);
+            }
+            tailBucket = bucket;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.getAndUpdate(i, count -> count >> 1);
+            }
+        }
+
+        static int bucketOf(long duration) {
+            if (duration < 2) {
+                return (int) Math.max(0, duration);
+            }
+            int power = 63 - Long.numberOfLeadingZeros(duration);
+            int half = (int) (duration >>> (power - 1)) & 1;
+            return Math.min(BUCKETS - 1, power * 2 + half);
+        }
+    }
+
+    /**
+     * Allows {@code limit} calls per second, 0 or less for no limit. Calls
+     * racing with the start of a second may be allowed in excess.
+     */
+    private static final class RateLimiter {
+        private final int limit;
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        private RateLimiter(int limit) {
+            this.limit = limit;
+        }
+
+        private boolean tryAcquire() {
+            if (limit <= 0) {
+                return true;
+            }
+            long now = System.currentTimeMillis() / 1000;
+            long current = second.get();
+            if (current != now && second.compareAndSet(current, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= limit;
+        }
+    }
+}
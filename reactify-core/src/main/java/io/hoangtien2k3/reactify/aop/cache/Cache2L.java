@@ -15,6 +15,11 @@
  */
 package io.hoangtien2k3.reactify.aop.cache;
 
+import io.hoangtien2k3.reactify.aop.cache.codec.RedisCodec;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheTtlResolver;
+import io.hoangtien2k3.reactify.aop.cache.expiry.DefaultCacheTtlResolver;
+import io.hoangtien2k3.reactify.aop.cache.key.CacheKeyGenerator;
+import io.hoangtien2k3.reactify.aop.cache.key.DefaultCacheKeyGenerator;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -37,4 +42,104 @@ public @interface Cache2L {
     boolean autoCache() default false;
 
     boolean useGlobalCache() default false;
+
+    /**
+     * Age in minutes after which a cached entry is reloaded in the background on
+     * its next access while the stale value is still served. Must be less than
+     * {@code durationInMinute}, 0 disables refresh-ahead.
+     *
+     * @return the refresh age in minutes
+     */
+    int refreshAfterInMinute() default 0;
+
+    /**
+     * Coalesce concurrent cache misses for the same key so that only one
+     * subscriber per JVM invokes the annotated method, every other subscriber
+     * attaches to the in-flight result.
+     *
+     * @return true to enable single-flight loading
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * Generator of the local and global keys of the cached entries, it must have
+     * a public no-arg constructor.
+     *
+     * @return the key generator type
+     */
+    Class<? extends CacheKeyGenerator> keyGenerator() default DefaultCacheKeyGenerator.class;
+
+    /**
+     * Format of the values written to the global cache, {@code DEFAULT} uses the
+     * {@code cache2l.redis.codec} property.
+     *
+     * @return the value codec
+     */
+    RedisCodec codec() default RedisCodec.DEFAULT;
+
+    /**
+     * Cache each entry of a bulk lookup separately. The annotated method must
+     * take a single {@link java.util.Collection} of ids and return a
+     * {@code Mono<Map<id, value>>}, it is only invoked with the ids found in
+     * neither the local cache nor Redis.
+     *
+     * @return true for a bulk lookup method
+     */
+    boolean bulk() default false;
+
+    /**
+     * Time in seconds to remember that the method returned no value, an empty
+     * {@code Mono} or an empty {@code Optional}, so that repeated lookups of a
+     * missing key do not reach the origin. Keep it short, a value created in the
+     * meantime is only seen once it expires. 0 disables negative caching.
+     *
+     * @return the negative entry duration in seconds
+     */
+    int negativeDurationInSecond() default 0;
+
+    int negativeMaxRecord() default 1000;
+
+    /**
+     * Bound the local cache by the estimated size of its entries in bytes
+     * instead of {@code maxRecord}, 0 bounds it by {@code maxRecord}.
+     *
+     * @return the maximum weight of the local cache in bytes
+     */
+    long maxWeightBytes() default 0;
+
+    /**
+     * Keep the local entries serialized with the global cache codec in direct
+     * memory instead of the heap, every hit decodes its value. Meant for large
+     * reference data, {@code maxWeightBytes} then bounds the direct memory used
+     * and must fit in {@code -XX:MaxDirectMemorySize}.
+     *
+     * @return true to store the local entries off-heap
+     */
+    boolean offHeap() default false;
+
+    /**
+     * Maximum percentage of {@code durationInMinute} randomly removed from the
+     * time to live of each entry, in the local and the global cache, so that
+     * entries loaded together do not expire together. 0 disables the jitter.
+     *
+     * @return the jitter in percent of the duration
+     */
+    int ttlJitterPercent() default 0;
+
+    /**
+     * Resolver of the time to live of an entry from its value, e.g. the expiry
+     * of a token, capped by {@code durationInMinute}. It must have a public
+     * no-arg constructor.
+     *
+     * @return the time to live resolver type
+     */
+    Class<? extends CacheTtlResolver> ttlFrom() default DefaultCacheTtlResolver.class;
+
+    /**
+     * Keep the {@code cacheWarmUp} health indicator DOWN until the startup load
+     * of this {@code autoCache} method succeeded.
+     *
+     * @return true if the readiness waits for this cache
+     */
+    boolean criticalWarmUp() default false;
 }
@@ -15,29 +15,24 @@
  */
 package io.hoangtien2k3.reactify.aop.cache;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Policy;
-import io.hoangtien2k3.reactify.aop.cache.redis.RedisCacheKeyCounter;
-import io.hoangtien2k3.reactify.factory.ObjectMapperFactory;
-import io.lettuce.core.RedisException;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheExpiry;
+import io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyDetector;
+import io.hoangtien2k3.reactify.aop.cache.key.CacheKeyGenerator;
+import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.log4j.Log4j2;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.interceptor.SimpleKeyGenerator;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.dao.QueryTimeoutException;
-import org.springframework.data.redis.RedisConnectionFailureException;
-import org.springframework.data.redis.RedisSystemException;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import reactor.cache.CacheMono;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Signal;
@@ -47,6 +42,11 @@ import reactor.core.publisher.Signal;
  * Cache2LAspect class.
  * </p>
  *
+ * Serves the methods annotated with {@link Cache2L} and
+ * {@link io.hoangtien2k3.reactify.annotations.LocalCache} from the local tier,
+ * then from the {@link RemoteCacheTier} for the caches using the global cache,
+ * and invokes the method on a miss of both.
+ *
  * @author hoangtien2k3
  */
 @Aspect
@@ -57,28 +57,13 @@ public class Cache2LAspect {
     @Value("${cache2l.enable-global-cache:false}")
     private boolean enableGlobalCache;
 
-    @Value("${cache2l.redis.externalMode:false}")
-    private boolean isExternalRedis;
-
-    private static final ObjectMapper OBJECT_MAPPER = ObjectMapperFactory.getInstance();
-    private boolean isRedisAvailable = true;
-
-    @Qualifier("redisMasterCache2LTemplate")
-    @Autowired(required = false)
-    private RedisTemplate redisMasterTemplate;
-
-    @Qualifier("redisSlaveCache2LTemplate")
-    @Autowired(required = false)
-    private RedisTemplate redisSlaveTemplate;
-
-    @Qualifier("redisExternalCache2LTemplate")
-    @Autowired(required = false)
-    private RedisTemplate redisExternalTemplate;
+    private final Map<Method, CacheInfo> resolvedCaches = new ConcurrentHashMap<>();
 
     @Autowired
-    private RedisCacheKeyCounter redisCacheKey;
+    private RemoteCacheTier remoteCacheTier;
 
-    @Pointcut("@annotation(io.hoangtien2k3.reactify.aop.cache.Cache2L)")
+    @Pointcut("@annotation(io.hoangtien2k3.reactify.aop.cache.Cache2L)"
+            + " || @annotation(io.hoangtien2k3.reactify.annotations.LocalCache)")
     private void processAnnotation() {}
 
     /**
@@ -94,178 +79,291 @@ public class Cache2LAspect {
      */
     @Around("processAnnotation()")
     public Object aroundAdvice(ProceedingJoinPoint pjp) throws Throwable {
+        CacheInfo cacheInfo = resolveCacheInfo(pjp);
+        if (cacheInfo == null) {
+            log.warn(
+                    "Cache for method '{}' is not available. Proceeding without caching.",
+                    pjp.getSignature().toShortString());
+            return pjp.proceed(pjp.getArgs()); // Do not use cache if cache is not registered
+        }
+        if (cacheInfo.isBulk()) {
+            return Mono.defer(() -> bulkLookup(pjp, cacheInfo));
+        }
         Object[] args = pjp.getArgs();
-        Object key = SimpleKeyGenerator.generateKey(args);
-        String name = pjp.getTarget().getClass().getSimpleName() + "."
-                + pjp.getSignature().getName();
-        Object globalKey = SimpleKeyGenerator.generateKey(args, name);
-        Cache<Object, Object> cache = Cache2LStore.getCache(name);
-        if (cache == null) {
-            log.warn("Cache for name '{}' is not available. Proceeding without caching.", name);
-            return pjp.proceed(args); // Do not use cache if cache is null
+        Object key = cacheInfo.getKeyGenerator().generate(args);
+        Cache<Object, Object> cache = cacheInfo.getCache();
+
+        Mono<Object> onCacheMiss = onCacheMissHandler(args, pjp, cacheInfo);
+        SingleFlightLoader singleFlightLoader = cacheInfo.getSingleFlightLoader();
+        if (singleFlightLoader != null) {
+            onCacheMiss = singleFlightLoader.load(key, onCacheMiss);
         }
-        Policy.FixedExpiration<?, ?> expiration =
-                (Policy.FixedExpiration<?, ?>) cache.policy().expireAfterWrite().get();
 
-        return CacheMono.lookup(k -> Mono.justOrEmpty(cache.getIfPresent(key)).map(Signal::next), key)
-                .onCacheMissResume((Mono<Object>)
-                        onCacheMisResumeHandler(args, pjp, globalKey, name, expiration.getExpiresAfter()))
+        CacheRefresher refresher = cacheInfo.getRefresher();
+        Cache<Object, Object> negativeCache = cacheInfo.getNegativeCache();
+
+        return CacheMono.lookup(
+                        k -> {
+                            Object value = cache.getIfPresent(key);
+                            if (value != null) {
+                                if (refresher != null) {
+                                    refresher.refreshIfStale(key, () -> refreshHandler(args, pjp, cacheInfo));
+                                }
+                                return Mono.just(Signal.next(value));
+                            }
+                            Object negativeValue = negativeCache == null ? null : negativeCache.getIfPresent(key);
+                            return Mono.justOrEmpty(negativeValue).map(Cache2LAspect::toSignal);
+                        },
+                        key)
+                .onCacheMissResume(onCacheMiss)
                 .andWriteWith((k, sig) -> Mono.fromRunnable(() -> {
-                    if (sig != null && sig.get() != null) {
-                        if (!(sig.get() instanceof Optional && ((Optional) sig.get()).isEmpty())) {
-                            cache.put(k, sig.get());
+                    if (sig == null || sig.isOnError()) {
+                        return;
+                    }
+                    Object value = sig.get();
+                    if (value != null && !isEmptyOptional(value)) {
+                        cache.put(k, value);
+                        if (refresher != null) {
+                            refresher.onWrite(k);
                         }
+                        pinIfHot(args, k, value, cacheInfo);
+                    } else if (negativeCache != null) {
+                        negativeCache.put(k, value == null ? CacheInfo.NO_VALUE : value);
                     }
                 }));
     }
 
-    private Object onCacheMisResumeHandler(
-            Object[] args, ProceedingJoinPoint proceedingJoinPoint, Object key, String cacheName, Duration duration)
-            throws Throwable {
-        if (enableGlobalCache && Cache2LStore.useGlobalCache(cacheName) && isRedisAvailable) {
-            if (Cache2LStore.isOptional(cacheName)) {
-                return CacheMono.lookup(
-                                k -> Mono.justOrEmpty(readValueFromRedis(key, cacheName))
-                                        .map(Optional::ofNullable)
-                                        .map(Signal::next),
-                                key)
-                        .onCacheMissResume((Mono<Optional<Object>>) proceedingJoinPoint.proceed(args))
-                        .andWriteWith((k, sig) -> Mono.fromRunnable(() -> {
-                            if (sig != null && sig.get() != null && sig.get().isPresent()) {
-                                writeValueToRedis(k, sig.get().get(), duration);
-                            }
-                        }));
-            } else {
-                return CacheMono.lookup(
-                                k -> Mono.justOrEmpty(readValueFromRedis(key, cacheName))
-                                        .map(Signal::next),
-                                key)
-                        .onCacheMissResume(((Mono<Object>) proceedingJoinPoint.proceed(args)))
-                        .andWriteWith((k, sig) -> Mono.fromRunnable(() -> {
-                            if (sig != null && sig.get() != null) {
-                                writeValueToRedis(k, sig.get(), duration);
-                            }
-                        }));
+    /**
+     * Keeps a hot key longer in the local cache, so that fewer reads reach the
+     * Redis node holding it. The pin only extends the entry, and never beyond the
+     * time to live of its value.
+     */
+    private static void pinIfHot(Object[] args, Object key, Object value, CacheInfo cacheInfo) {
+        HotKeyDetector hotKeyDetector = cacheInfo.getHotKeyDetector();
+        if (hotKeyDetector == null
+                || !hotKeyDetector.hasHotKeys()
+                || hotKeyDetector.getPinDuration().isZero()
+                || !hotKeyDetector.isHot(cacheInfo.getKeyGenerator().generateGlobalKey(cacheInfo.getName(), args))) {
+            return;
+        }
+        CacheExpiry expiry = cacheInfo.getExpiry();
+        Duration maxTtl = expiry != null ? expiry.maxTtlOf(value) : cacheInfo.getTtl();
+        Duration pin = hotKeyDetector.getPinDuration().compareTo(maxTtl) < 0 ? hotKeyDetector.getPinDuration() : maxTtl;
+        cacheInfo.getCache().policy().expireVariably().ifPresent(expiration -> expiration
+                .getExpiresAfter(key)
+                .filter(remaining -> remaining.compareTo(pin) < 0)
+                .ifPresent(remaining -> expiration.setExpiresAfter(key, pin)));
+    }
+
+    /**
+     * Signal of a negative entry, an empty {@code Optional} or no value at all.
+     */
+    private static Signal<Object> toSignal(Object negativeValue) {
+        return negativeValue == CacheInfo.NO_VALUE ? Signal.complete() : Signal.next(negativeValue);
+    }
+
+    private static boolean isEmptyOptional(Object value) {
+        return value instanceof Optional && ((Optional) value).isEmpty();
+    }
+
+    /**
+     * Resolves the cache descriptor once per advised method, later calls are a
+     * single map lookup.
+     */
+    private CacheInfo resolveCacheInfo(ProceedingJoinPoint pjp) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        CacheInfo cacheInfo = resolvedCaches.get(method);
+        if (cacheInfo == null) {
+            cacheInfo = Cache2LStore.getCacheInfo(method);
+            if (cacheInfo == null) {
+                // interface method of a JDK proxy, the cache is registered on the implementation
+                cacheInfo = Cache2LStore.getCacheInfo(
+                        AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(pjp.getTarget())));
+            }
+            if (cacheInfo != null) {
+                resolvedCaches.put(method, cacheInfo);
             }
-        } else {
-            return proceedingJoinPoint.proceed(args);
         }
+        return cacheInfo;
     }
 
-    private Object readValueFromRedis(Object key, String cacheName) {
-        if (enableGlobalCache && isRedisAvailable) {
-            try {
-                Class<?> wrapType = Cache2LStore.getWrapType(cacheName);
-                Class<?> type = Cache2LStore.getType(cacheName);
-                Object value;
-                if (isExternalRedis) {
-                    value = redisExternalTemplate.opsForValue().get(key);
-                } else {
-                    value = redisSlaveTemplate.opsForValue().get(key);
-                }
-                if (value != null) {
-                    redisCacheKey.recordHit(cacheName);
-                    if (wrapType != null) {
-                        if (wrapType.equals(List.class)
-                                || wrapType.equals(LinkedList.class)
-                                || wrapType.equals(ArrayList.class)
-                                || wrapType.equals(Set.class)
-                                || wrapType.equals(LinkedHashSet.class)
-                                || wrapType.equals(HashSet.class)) {
-                            return OBJECT_MAPPER.convertValue(
-                                    value,
-                                    OBJECT_MAPPER
-                                            .getTypeFactory()
-                                            .constructCollectionType((Class<? extends Collection>) wrapType, type));
-                        } else {
-                            return OBJECT_MAPPER.convertValue(
-                                    value,
-                                    OBJECT_MAPPER
-                                            .getTypeFactory()
-                                            .constructMapType(
-                                                    (Class<? extends Map>) wrapType,
-                                                    Cache2LStore.getMapKeyType(cacheName),
-                                                    Cache2LStore.getMapValueType(cacheName)));
-                        }
-                    } else {
-                        return OBJECT_MAPPER.convertValue(value, type);
+    /**
+     * Serves the ids found in the local cache, fetches the others from Redis with
+     * a single MGET and invokes the method only with the ids still missing.
+     */
+    private Mono<Object> bulkLookup(ProceedingJoinPoint pjp, CacheInfo cacheInfo) {
+        Object[] args = pjp.getArgs();
+        Collection<Object> ids = (Collection<Object>) args[0];
+        if (ids == null || ids.isEmpty()) {
+            return proceed(pjp, args);
+        }
+        Cache<Object, Object> cache = cacheInfo.getCache();
+        CacheKeyGenerator keyGenerator = cacheInfo.getKeyGenerator();
+        Map<Object, Object> result = new LinkedHashMap<>();
+        List<Object> missingIds = new ArrayList<>();
+        Cache<Object, Object> negativeCache = cacheInfo.getNegativeCache();
+        for (Object id : ids) {
+            Object key = keyGenerator.generate(new Object[] {id});
+            Object value = cache.getIfPresent(key);
+            if (value != null) {
+                result.put(id, value);
+            } else if (negativeCache == null || negativeCache.getIfPresent(key) == null) {
+                missingIds.add(id);
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return Mono.just(result);
+        }
+        return remoteCacheTier.getAll(missingIds, cacheInfo).flatMap(found -> {
+            List<Object> loadIds = new ArrayList<>();
+            for (Object id : missingIds) {
+                Object value = found.get(id);
+                if (value == CacheInfo.NO_VALUE) {
+                    if (negativeCache != null) {
+                        negativeCache.put(keyGenerator.generate(new Object[] {id}), CacheInfo.NO_VALUE);
                     }
+                } else if (value != null) {
+                    cache.put(keyGenerator.generate(new Object[] {id}), value);
+                    result.put(id, value);
                 } else {
-                    redisCacheKey.recordMiss(cacheName);
-                    return null;
+                    loadIds.add(id);
                 }
-            } catch (Exception e) {
-                log.error("Get redis with key {} fail ", key, e);
-                if (e instanceof QueryTimeoutException
-                        || e instanceof RedisException
-                        || e instanceof RedisConnectionFailureException
-                        || e instanceof RedisSystemException) {
-                    isRedisAvailable = false;
-                }
-                return null;
             }
-        } else {
-            log.error("Redis server is not available to read key {}", key);
-            return null;
-        }
+            if (loadIds.isEmpty()) {
+                return Mono.just(result);
+            }
+            Class<?> idsType = ((MethodSignature) pjp.getSignature()).getMethod().getParameterTypes()[0];
+            Object[] loadArgs = {Set.class.isAssignableFrom(idsType) ? new LinkedHashSet<>(loadIds) : loadIds};
+            return load(pjp, loadArgs, cacheInfo)
+                    .defaultIfEmpty(Map.of())
+                    .flatMap(loaded -> {
+                        Map<Object, Object> values = new LinkedHashMap<>();
+                        for (Object id : loadIds) {
+                            Object key = keyGenerator.generate(new Object[] {id});
+                            Object value = ((Map<Object, Object>) loaded).get(id);
+                            if (value != null) {
+                                cache.put(key, value);
+                                result.put(id, value);
+                                values.put(id, value);
+                            } else if (negativeCache != null) {
+                                negativeCache.put(key, CacheInfo.NO_VALUE);
+                                values.put(id, CacheInfo.NO_VALUE);
+                            }
+                        }
+                        return remoteCacheTier.putAll(values, cacheInfo);
+                    })
+                    .then(Mono.just(result));
+        });
     }
 
-    private void writeValueToRedis(Object key, Object value, Duration expireTime) {
-        if (enableGlobalCache && isRedisAvailable) {
-            try {
-                if (isExternalRedis) {
-                    redisExternalTemplate.opsForValue().set(key, value);
-                    redisExternalTemplate.expire(key, expireTime);
-                } else {
-                    redisMasterTemplate.opsForValue().set(key, value);
-                    redisMasterTemplate.expire(key, expireTime);
-                }
-            } catch (Exception e) {
-                log.error("Write to global cache fail", e);
-                if (e instanceof QueryTimeoutException
-                        || e instanceof RedisException
-                        || e instanceof RedisConnectionFailureException
-                        || e instanceof RedisSystemException) {
-                    isRedisAvailable = false;
-                }
+    /**
+     * Deferred so that the global key is only built, and the method only invoked,
+     * when the local cache misses.
+     */
+    private Mono<Object> onCacheMissHandler(
+            Object[] args, ProceedingJoinPoint proceedingJoinPoint, CacheInfo cacheInfo) {
+        return Mono.defer(() -> {
+            if (!enableGlobalCache || !cacheInfo.useGlobalCache()) {
+                return load(proceedingJoinPoint, args, cacheInfo);
+            }
+            String key = cacheInfo.getKeyGenerator().generateGlobalKey(cacheInfo.getName(), args);
+            HotKeyDetector hotKeyDetector = cacheInfo.getHotKeyDetector();
+            boolean hot = hotKeyDetector != null && hotKeyDetector.record(key);
+            if (cacheInfo.getGlobalCacheInfo().isOptional()) {
+                return CacheMono.lookup(
+                                k -> readGlobalValue(key, cacheInfo, hot)
+                                        .map(value -> value == CacheInfo.NO_VALUE
+                                                ? Optional.empty()
+                                                : Optional.of(value))
+                                        .map(Signal::next),
+                                key)
+                        .onCacheMissResume(
+                                load(proceedingJoinPoint, args, cacheInfo).map(value -> (Optional<Object>) value))
+                        .andWriteWith((k, sig) -> {
+                            if (sig == null || sig.get() == null) {
+                                return Mono.empty();
+                            }
+                            if (sig.get().isPresent()) {
+                                return remoteCacheTier.put(globalKeys(k, cacheInfo, hot), sig.get().get(), cacheInfo);
+                            }
+                            return cacheInfo.useNegativeCache()
+                                    ? remoteCacheTier.put(globalKeys(k, cacheInfo, hot), CacheInfo.NO_VALUE, cacheInfo)
+                                    : Mono.empty();
+                        })
+                        .map(value -> (Object) value);
             }
-        } else {
-            log.error("Redis server is not available to write value with key {}", key);
+            return CacheMono.lookup(k -> readGlobalValue(key, cacheInfo, hot).map(Cache2LAspect::toSignal), key)
+                    .onCacheMissResume(load(proceedingJoinPoint, args, cacheInfo))
+                    .andWriteWith((k, sig) -> {
+                        if (sig != null && sig.get() != null) {
+                            return remoteCacheTier.put(globalKeys(k, cacheInfo, hot), sig.get(), cacheInfo);
+                        }
+                        if (sig != null && sig.isOnComplete() && cacheInfo.useNegativeCache()) {
+                            return remoteCacheTier.put(globalKeys(k, cacheInfo, hot), CacheInfo.NO_VALUE, cacheInfo);
+                        }
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private Mono<Object> refreshHandler(Object[] args, ProceedingJoinPoint proceedingJoinPoint, CacheInfo cacheInfo) {
+        Mono<Object> result = load(proceedingJoinPoint, args, cacheInfo);
+        if (!enableGlobalCache || !cacheInfo.useGlobalCache()) {
+            return result;
         }
+        String key = cacheInfo.getKeyGenerator().generateGlobalKey(cacheInfo.getName(), args);
+        return result.flatMap(value -> {
+            Object globalValue = value instanceof Optional ? ((Optional) value).orElse(null) : value;
+            if (globalValue == null) {
+                return Mono.just(value);
+            }
+            HotKeyDetector hotKeyDetector = cacheInfo.getHotKeyDetector();
+            boolean hot = hotKeyDetector != null && hotKeyDetector.isHot(key);
+            return remoteCacheTier.put(globalKeys(key, cacheInfo, hot), globalValue, cacheInfo)
+                    .thenReturn(value);
+        });
     }
 
     /**
-     * <p>
-     * redisHealthCheckJob.
-     * </p>
+     * Invokes the method to load missing entries, timed as a load of the cache.
      */
-    @Scheduled(fixedDelay = 50000)
-    public void redisHealthCheckJob() {
-        if (!enableGlobalCache) {
-            return;
-        }
+    private Mono<Object> load(ProceedingJoinPoint proceedingJoinPoint, Object[] args, CacheInfo cacheInfo) {
+        return cacheInfo.getMeters().timeLoad(proceed(proceedingJoinPoint, args));
+    }
+
+    private Mono<Object> proceed(ProceedingJoinPoint proceedingJoinPoint, Object[] args) {
         try {
-            if (isExternalRedis) {
-                isRedisAvailable = redisExternalTemplate
-                                .getConnectionFactory()
-                                .getConnection()
-                                .ping()
-                        != null;
-            } else {
-                isRedisAvailable = redisMasterTemplate
-                                        .getConnectionFactory()
-                                        .getConnection()
-                                        .ping()
-                                != null
-                        && redisSlaveTemplate
-                                        .getConnectionFactory()
-                                        .getConnection()
-                                        .ping()
-                                != null;
-            }
-        } catch (Exception e) {
-            log.warn("Redis server is not available at the moment.");
-            isRedisAvailable = false;
+            return (Mono<Object>) proceedingJoinPoint.proceed(args);
+        } catch (Throwable e) {
+            return Mono.error(e);
+        }
+    }
+
+    /**
+     * Reads a hot key from one of its copies picked at random. A missing copy
+     * falls back to the key itself and writes the copies in the background.
+     */
+    private Mono<Object> readGlobalValue(String key, CacheInfo cacheInfo, boolean hot) {
+        HotKeyDetector hotKeyDetector = cacheInfo.getHotKeyDetector();
+        if (!hot || hotKeyDetector.getReplicas() == 0) {
+            return remoteCacheTier.get(key, cacheInfo);
+        }
+        return remoteCacheTier.get(hotKeyDetector.randomReplicaKey(key), cacheInfo)
+                .switchIfEmpty(Mono.defer(() -> remoteCacheTier.get(key, cacheInfo)
+                        .doOnNext(value -> remoteCacheTier.put(hotKeyDetector.replicaKeys(key), value, cacheInfo)
+                                .subscribe())));
+    }
+
+    /**
+     * The key and, for a hot key, its copies.
+     */
+    private static List<String> globalKeys(String key, CacheInfo cacheInfo, boolean hot) {
+        HotKeyDetector hotKeyDetector = cacheInfo.getHotKeyDetector();
+        if (!hot || hotKeyDetector.getReplicas() == 0) {
+            return List.of(key);
         }
+        List<String> keys = new ArrayList<>(hotKeyDetector.replicaKeys(key));
+        keys.add(0, key);
+        return keys;
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Cache2LEvict class.
+ * </p>
+ *
+ * Evicts entries of {@link Cache2L} caches when the annotated method, which
+ * must return a {@link reactor.core.publisher.Mono} or a
+ * {@link reactor.core.publisher.Flux}, completes. The entry is
+ * removed from the local cache of every instance and from Redis. Unless
+ * {@code allEntries} is set, the arguments selected by {@code argIndexes} are
+ * the arguments of the cached method whose entry is evicted.
+ *
+ * @author hoangtien2k3
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cache2LEvict {
+    /**
+     * Names of the caches to evict, in the form
+     * {@code SimpleClassName.methodName} of the cached methods.
+     *
+     * @return the cache names
+     */
+    String[] cacheNames();
+
+    boolean allEntries() default false;
+
+    /**
+     * Indexes of the arguments of the annotated method passed, in this order, as
+     * the arguments of the cached method, e.g. {@code {0}} to evict
+     * {@code findById(id)} from {@code update(id, dto)}. All the arguments when
+     * empty. The selected arguments must match the parameters of every cached
+     * method, the first call fails otherwise.
+     *
+     * @return the indexes of the key arguments
+     */
+    int[] argIndexes() default {};
+
+    boolean beforeInvocation() default false;
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ * Cache2LEvictAspect class.
+ * </p>
+ *
+ * @author hoangtien2k3
+ */
+@Aspect
+@Configuration
+@RequiredArgsConstructor
+public class Cache2LEvictAspect {
+    private final Cache2LEvictor cache2LEvictor;
+    // key argument indexes per evicting method, resolved and checked on the first call
+    private final Map<Method, int[]> keyIndexes = new ConcurrentHashMap<>();
+
+    @Pointcut("@annotation(cache2LEvict)")
+    private void processAnnotation(Cache2LEvict cache2LEvict) {}
+
+    /**
+     * <p>
+     * aroundAdvice.
+     * </p>
+     *
+     * @param pjp
+     *            a {@link org.aspectj.lang.ProceedingJoinPoint} object
+     * @param cache2LEvict
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.Cache2LEvict} object
+     * @return a {@link java.lang.Object} object
+     * @throws java.lang.Throwable
+     *             if any.
+     */
+    @Around(value = "processAnnotation(cache2LEvict)", argNames = "pjp,cache2LEvict")
+    public Object aroundAdvice(ProceedingJoinPoint pjp, Cache2LEvict cache2LEvict) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Class<?> returnType = method.getReturnType();
+        if (!Mono.class.isAssignableFrom(returnType) && !Flux.class.isAssignableFrom(returnType)) {
+            throw new IllegalStateException("@Cache2LEvict on " + method + " must return Mono or Flux");
+        }
+        Object[] args = pjp.getArgs();
+        Object[] keyArgs = cache2LEvict.allEntries()
+                ? args
+                : selectArgs(args, keyIndexes.computeIfAbsent(method, m -> resolveKeyIndexes(m, cache2LEvict)));
+        Mono<Void> evict = Flux.fromArray(cache2LEvict.cacheNames())
+                .concatMap(cacheName -> cache2LEvict.allEntries()
+                        ? cache2LEvictor.evictAll(cacheName)
+                        : cache2LEvictor.evict(cacheName, keyArgs))
+                .then();
+        if (Flux.class.isAssignableFrom(returnType)) {
+            if (cache2LEvict.beforeInvocation()) {
+                return evict.thenMany(Flux.defer(() -> proceed(pjp, args)));
+            }
+            // evicted once the stream completes, like the Mono once it emits
+            return ((Flux<Object>) pjp.proceed(args)).concatWith(evict.then(Mono.empty()));
+        }
+        if (cache2LEvict.beforeInvocation()) {
+            return evict.then(Mono.defer(() -> Mono.from(proceed(pjp, args))));
+        }
+        Mono<Object> result = (Mono<Object>) pjp.proceed(args);
+        return result.flatMap(value -> evict.thenReturn(value)).switchIfEmpty(evict.then(Mono.empty()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Publisher<Object> proceed(ProceedingJoinPoint pjp, Object[] args) {
+        try {
+            return (Publisher<Object>) pjp.proceed(args);
+        } catch (Throwable e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Object[] selectArgs(Object[] args, int[] indexes) {
+        Object[] selected = new Object[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = args[indexes[i]];
+        }
+        return selected;
+    }
+
+    private static int[] resolveKeyIndexes(Method method, Cache2LEvict cache2LEvict) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        int[] indexes = cache2LEvict.argIndexes().length == 0
+                ? IntStream.range(0, parameterTypes.length).toArray()
+                : cache2LEvict.argIndexes();
+        for (int index : indexes) {
+            if (index < 0 || index >= parameterTypes.length) {
+                throw new IllegalStateException("@Cache2LEvict on " + method + " selects argument " + index
+                        + " out of " + parameterTypes.length);
+            }
+        }
+        for (String cacheName : cache2LEvict.cacheNames()) {
+            CacheInfo cacheInfo = Cache2LStore.getCacheInfo(cacheName);
+            if (cacheInfo == null) {
+                continue;
+            }
+            Class<?>[] keyTypes = cacheInfo.getMethod().getParameterTypes();
+            boolean matches = keyTypes.length == indexes.length;
+            for (int i = 0; matches && i < indexes.length; i++) {
+                matches = ClassUtils.isAssignable(keyTypes[i], parameterTypes[indexes[i]]);
+            }
+            if (!matches) {
+                throw new IllegalStateException("@Cache2LEvict on " + method + " selects arguments "
+                        + Arrays.toString(indexes) + " that don't match the parameters of cache " + cacheName
+                        + ", set argIndexes");
+            }
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyDetector;
+import io.hoangtien2k3.reactify.aop.cache.redis.RedisCacheTier;
+import io.hoangtien2k3.reactify.factory.ObjectMapperFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * <p>
+ * Cache2LEvictor class.
+ * </p>
+ *
+ * Evicts entries of {@link Cache2L} caches. The local entry is invalidated,
+ * the Redis key is deleted and an invalidation message is published on the
+ * {@code cache2l.invalidation.channel} channel, every other instance evicts its
+ * local entry when it receives the message.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+@Component
+public class Cache2LEvictor {
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMapperFactory.getInstance();
+    private static final int SCAN_COUNT = 1000;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private ReactiveRedisTemplate<String, byte[]> redisTemplate;
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+    private Disposable subscription;
+
+    @Value("${cache2l.enable-global-cache:false}")
+    private boolean enableGlobalCache;
+
+    @Value("${cache2l.redis.externalMode:false}")
+    private boolean isExternalRedis;
+
+    @Value("${cache2l.invalidation.enabled:true}")
+    private boolean enableInvalidation;
+
+    @Value("${cache2l.invalidation.channel:cache2l:invalidation}")
+    private String channel;
+
+    @Qualifier("reactiveRedisMasterCache2LTemplate")
+    @Autowired(required = false)
+    private ReactiveRedisTemplate<String, byte[]> reactiveRedisMasterTemplate;
+
+    @Qualifier("reactiveRedisExternalCache2LTemplate")
+    @Autowired(required = false)
+    private ReactiveRedisTemplate<String, byte[]> reactiveRedisExternalTemplate;
+
+    @Autowired(required = false)
+    private RedisCacheTier redisCacheTier;
+
+    /**
+     * <p>
+     * evict.
+     * </p>
+     *
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @param args
+     *            the arguments of the cached method call to evict
+     * @return a {@link reactor.core.publisher.Mono} completing once the entry is
+     *         evicted locally and in Redis and the invalidation is published
+     */
+    public Mono<Void> evict(String cacheName, Object... args) {
+        CacheInfo cacheInfo = Cache2LStore.getCacheInfo(cacheName);
+        if (cacheInfo == null) {
+            log.warn("Cache {} is not available to evict", cacheName);
+            return Mono.empty();
+        }
+        invalidateLocal(cacheInfo, args);
+        if (redisTemplate == null) {
+            return Mono.empty();
+        }
+        Mono<Void> deleteGlobal = Mono.empty();
+        if (cacheInfo.useGlobalCache()) {
+            List<String> keys = globalKeys(cacheInfo, args);
+            if (redisCacheTier != null) {
+                redisCacheTier.cancelWrites(keys);
+            }
+            deleteGlobal = Flux.fromIterable(keys).flatMap(key -> redisTemplate.unlink(key)).then();
+        }
+        // the invalidation goes out even if Redis failed to delete, the peers
+        // still have to drop their local copy; it follows the delete so they
+        // don't reload the stale value
+        return deleteGlobal
+                .onErrorResume(e -> {
+                    log.error("Evict cache {} from Redis fail", cacheName, e);
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> publish(new Cache2LInvalidationMessage(
+                        instanceId, cacheName, OBJECT_MAPPER.valueToTree(args), false))))
+                .onErrorResume(e -> {
+                    log.error("Publish invalidation of cache {} fail", cacheName, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * The key and, when hot keys are replicated, all its copies: another instance
+     * may have seen the key as hot. Each is unlinked alone, the copies live in
+     * other cluster slots.
+     */
+    private static List<String> globalKeys(CacheInfo cacheInfo, Object[] args) {
+        String key = cacheInfo.getKeyGenerator().generateGlobalKey(cacheInfo.getName(), args);
+        HotKeyDetector hotKeyDetector = cacheInfo.getHotKeyDetector();
+        if (hotKeyDetector == null || hotKeyDetector.getReplicas() == 0) {
+            return List.of(key);
+        }
+        List<String> keys = new ArrayList<>(hotKeyDetector.replicaKeys(key));
+        keys.add(0, key);
+        return keys;
+    }
+
+    /**
+     * <p>
+     * evictAll.
+     * </p>
+     *
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @return a {@link reactor.core.publisher.Mono} completing once all the
+     *         entries are evicted locally and in Redis and the invalidation is
+     *         published
+     */
+    public Mono<Void> evictAll(String cacheName) {
+        CacheInfo cacheInfo = Cache2LStore.getCacheInfo(cacheName);
+        if (cacheInfo == null) {
+            log.warn("Cache {} is not available to evict", cacheName);
+            return Mono.empty();
+        }
+        invalidateAllLocal(cacheInfo);
+        if (redisTemplate == null) {
+            return Mono.empty();
+        }
+        Mono<Long> deleteGlobal = Mono.empty();
+        if (cacheInfo.useGlobalCache()) {
+            if (redisCacheTier != null) {
+                redisCacheTier.cancelWrites(cacheName);
+            }
+            deleteGlobal = deleteGlobalEntries(cacheName);
+        }
+        return deleteGlobal
+                .onErrorResume(e -> {
+                    log.error("Evict all entries of cache {} from Redis fail", cacheName, e);
+                    return Mono.empty();
+                })
+                .then(publish(new Cache2LInvalidationMessage(instanceId, cacheName, null, true)))
+                .onErrorResume(e -> {
+                    log.error("Publish invalidation of all entries of cache {} fail", cacheName, e);
+                    return Mono.empty();
+                });
+    }
+
+    private void invalidateLocal(CacheInfo cacheInfo, Object[] args) {
+        Object key = cacheInfo.getKeyGenerator().generate(args);
+        cacheInfo.getCache().invalidate(key);
+        if (cacheInfo.useNegativeCache()) {
+            cacheInfo.getNegativeCache().invalidate(key);
+        }
+    }
+
+    private void invalidateAllLocal(CacheInfo cacheInfo) {
+        cacheInfo.getCache().invalidateAll();
+        if (cacheInfo.useNegativeCache()) {
+            cacheInfo.getNegativeCache().invalidateAll();
+        }
+    }
+
+    private Mono<Long> deleteGlobalEntries(String cacheName) {
+        ScanOptions options =
+                ScanOptions.scanOptions().match(cacheName + ":*").count(SCAN_COUNT).build();
+        return redisTemplate
+                .scan(options)
+                .concatWithValues(cacheName)
+                .buffer(SCAN_COUNT)
+                .concatMap(keys -> redisTemplate.unlink(keys.toArray(String[]::new)))
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Void> publish(Cache2LInvalidationMessage message) {
+        if (!enableInvalidation) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> OBJECT_MAPPER.writeValueAsBytes(message))
+                .flatMap(bytes -> redisTemplate.convertAndSend(channel, bytes))
+                .then();
+    }
+
+    private void onMessage(String body) {
+        try {
+            Cache2LInvalidationMessage message = OBJECT_MAPPER.readValue(body, Cache2LInvalidationMessage.class);
+            if (instanceId.equals(message.getSource())) {
+                return;
+            }
+            CacheInfo cacheInfo = Cache2LStore.getCacheInfo(message.getCacheName());
+            if (cacheInfo == null) {
+                return;
+            }
+            if (message.isAllEntries()) {
+                invalidateAllLocal(cacheInfo);
+            } else {
+                invalidateLocal(cacheInfo, readArgs(message.getArgs(), cacheInfo));
+            }
+        } catch (Exception e) {
+            log.error("Handle cache invalidation message {} fail", body, e);
+        }
+    }
+
+    private Object[] readArgs(JsonNode node, CacheInfo cacheInfo) {
+        Type[] parameterTypes = cacheInfo.getMethod().getGenericParameterTypes();
+        TypeFactory typeFactory = OBJECT_MAPPER.getTypeFactory();
+        Object[] args = new Object[parameterTypes.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = OBJECT_MAPPER.convertValue(node.get(i), typeFactory.constructType(parameterTypes[i]));
+        }
+        return args;
+    }
+
+    /**
+     * <p>
+     * init.
+     * </p>
+     */
+    @PostConstruct
+    public void init() {
+        if (!enableGlobalCache) {
+            return;
+        }
+        redisTemplate = isExternalRedis ? reactiveRedisExternalTemplate : reactiveRedisMasterTemplate;
+        if (redisTemplate == null || !enableInvalidation) {
+            return;
+        }
+        listenerContainer = new ReactiveRedisMessageListenerContainer(redisTemplate.getConnectionFactory());
+        subscription = listenerContainer
+                .receive(ChannelTopic.of(channel))
+                .map(message -> message.getMessage())
+                // local entries may be stale while the subscription is down, they still expire by ttl
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::onMessage);
+        log.info("Listening to cache invalidation on channel {}", channel);
+    }
+
+    /**
+     * <p>
+     * destroy.
+     * </p>
+     */
+    @PreDestroy
+    public void destroy() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+}
@@ -15,11 +15,27 @@
  */
 package io.hoangtien2k3.reactify.aop.cache;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.github.benmanes.caffeine.cache.Scheduler;
+import io.hoangtien2k3.reactify.annotations.LocalCache;
+import io.hoangtien2k3.reactify.aop.cache.codec.Cache2LCodecs;
+import io.hoangtien2k3.reactify.aop.cache.codec.RedisCodec;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheExpiry;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheTtlResolvers;
+import io.hoangtien2k3.reactify.aop.cache.expiry.DefaultCacheTtlResolver;
+import io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyDetector;
+import io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyProperties;
+import io.hoangtien2k3.reactify.aop.cache.key.CacheKeyGenerators;
+import io.hoangtien2k3.reactify.aop.cache.metrics.Cache2LMetrics;
 import io.hoangtien2k3.reactify.aop.cache.redis.RedisCacheMetricsCollector;
-import io.prometheus.client.cache.caffeine.CacheMetricsCollector;
+import io.hoangtien2k3.reactify.factory.ObjectMapperFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.annotation.PostConstruct;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
@@ -28,13 +44,9 @@ import java.time.Duration;
 import java.util.*;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
-import org.reflections.Reflections;
-import org.reflections.scanners.Scanners;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.event.ContextRefreshedEvent;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 /**
@@ -42,18 +54,28 @@ import org.springframework.stereotype.Component;
  * Cache2LStore class.
  * </p>
  *
+ * Builds the cache of every {@link Cache2L} and
+ * {@link io.hoangtien2k3.reactify.annotations.LocalCache} method from its
+ * {@link CacheSpec}, both are served by the {@link Cache2LAspect}.
+ *
  * @author hoangtien2k3
  */
 @Log4j2
 @Component
 public class Cache2LStore {
 
-    private static final HashMap<String, CacheInfo> caches = new HashMap<>();
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMapperFactory.getInstance();
+    private static volatile Map<String, CacheInfo> caches = Map.of();
+    private static volatile Map<Method, CacheInfo> methodCaches = Map.of();
     private static final Set<Method> autoLoadMethods = new HashSet<>();
-    private static CacheMetricsCollector CACHE_METRICS_COLLECTOR;
     private static RedisCacheMetricsCollector REDIS_CACHE_METRICS_COLLECTOR;
+    private static HotKeyProperties hotKeyProperties;
     private static boolean enableGlobalCache;
+    private static RedisCodec defaultCodec;
+    private static int lz4Threshold;
+    private static int lz4MaxLength;
     private static String reflectionPath;
+    private static String localCacheReflectionPath;
 
     @Autowired(required = false)
     /**
@@ -62,89 +84,231 @@ public class Cache2LStore {
      * </p>
      *
      * @param reflectionPath
-     *            a {@link java.lang.String} object
+     *            the packages scanned for {@link Cache2L} methods
+     * @param localCacheReflectionPath
+     *            the packages scanned for
+     *            {@link io.hoangtien2k3.reactify.annotations.LocalCache} methods
      * @param enableGlobalCache
      *            a boolean
+     * @param defaultCodec
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.codec.RedisCodec}
+     *            object
+     * @param lz4Threshold
+     *            an int
+     * @param lz4MaxLength
+     *            the maximum uncompressed size in bytes of an LZ4 value
      * @param redisCacheMetricsCollector
      *            a
      *            {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisCacheMetricsCollector}
      *            object
+     * @param hotKeyProperties
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyProperties}
+     *            object
+     * @param meterRegistry
+     *            the registry of the cache meters, the global registry if none
      */
     public Cache2LStore(
             @Value("${cache2l.reflectionPath:io.hoangtien2k3.commons}") String reflectionPath,
+            @Value("${local-cache.reflectionPath:io.hoangtien2k3.commons}") String localCacheReflectionPath,
             @Value("${cache2l.enable-global-cache:true}") boolean enableGlobalCache,
-            RedisCacheMetricsCollector redisCacheMetricsCollector) {
-        if (CACHE_METRICS_COLLECTOR == null) {
-            CACHE_METRICS_COLLECTOR = new CacheMetricsCollector().register();
-        }
+            @Value("${cache2l.redis.codec:JSON}") RedisCodec defaultCodec,
+            @Value("${cache2l.redis.lz4-threshold:-1}") int lz4Threshold,
+            @Value("${cache2l.redis.lz4-max-length:67108864}") int lz4MaxLength,
+            RedisCacheMetricsCollector redisCacheMetricsCollector,
+            HotKeyProperties hotKeyProperties,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        Cache2LMetrics.setMeterRegistry(meterRegistry.getIfUnique(() -> Metrics.globalRegistry));
         if (REDIS_CACHE_METRICS_COLLECTOR == null) {
             Cache2LStore.REDIS_CACHE_METRICS_COLLECTOR = redisCacheMetricsCollector;
         }
         Cache2LStore.reflectionPath = reflectionPath;
+        Cache2LStore.localCacheReflectionPath = localCacheReflectionPath;
         Cache2LStore.enableGlobalCache = enableGlobalCache;
+        Cache2LStore.defaultCodec = defaultCodec == RedisCodec.DEFAULT ? RedisCodec.JSON : defaultCodec;
+        Cache2LStore.lz4Threshold = lz4Threshold;
+        Cache2LStore.lz4MaxLength = lz4MaxLength;
+        Cache2LStore.hotKeyProperties = hotKeyProperties;
     }
 
     @PostConstruct
     private static void init() {
         log.info("Start initializing cache");
-        Reflections reflections = new Reflections(reflectionPath, Scanners.MethodsAnnotated);
-        Set<Method> methods =
-                reflections.get(Scanners.MethodsAnnotated.with(Cache2L.class).as(Method.class));
+        List<CacheSpec> specs = new ArrayList<>();
+        for (Method method : CacheIndex.findMethods(Cache2L.class, reflectionPath)) {
+            specs.add(CacheSpec.of(method, method.getAnnotation(Cache2L.class)));
+        }
+        for (Method method : CacheIndex.findMethods(LocalCache.class, localCacheReflectionPath)) {
+            if (!method.isAnnotationPresent(Cache2L.class)) {
+                specs.add(CacheSpec.of(method, method.getAnnotation(LocalCache.class)));
+            }
+        }
 
-        for (Method method : methods) {
-            processMethod(method);
+        Map<String, CacheInfo> cacheByName = new HashMap<>();
+        Map<Method, CacheInfo> cacheByMethod = new HashMap<>();
+        for (CacheSpec spec : specs) {
+            CacheInfo cacheInfo = processSpec(spec);
+            cacheByName.put(cacheInfo.getName(), cacheInfo);
+            cacheByMethod.put(spec.getMethod(), cacheInfo);
         }
+        // publish frozen copies, the aspect reads them without locking
+        caches = Map.copyOf(cacheByName);
+        methodCaches = Map.copyOf(cacheByMethod);
 
         log.info("Finish initializing {} cache", caches.size());
     }
 
-    private static void processMethod(Method method) {
-        String className = method.getDeclaringClass().getSimpleName();
-        Cache2L cache2L = method.getAnnotation(Cache2L.class);
+    private static CacheInfo processSpec(CacheSpec spec) {
+        Method method = spec.getMethod();
+        String cacheName = spec.getName();
+        if (spec.isBulk() && !isBulkMethod(method)) {
+            throw new IllegalStateException("Bulk cache " + cacheName
+                    + " must take a single Collection argument and return Mono<Map<K, V>>");
+        }
+        // the off-heap tier serializes its values with the global cache codec
+        boolean useGlobalCache = enableGlobalCache && spec.isUseGlobalCache();
+        GlobalCacheInfo valueInfo =
+                useGlobalCache || spec.isOffHeap() ? createGlobalCacheInfo(spec) : null;
+        CacheExpiry expiry = new CacheExpiry(
+                Duration.ofMinutes(spec.getDurationInMinute()),
+                spec.getTtlJitterPercent(),
+                spec.getTtlFrom() == DefaultCacheTtlResolver.class
+                        ? null
+                        : CacheTtlResolvers.getInstance(spec.getTtlFrom()));
+        Cache<Object, Object> cache = createCache(spec, valueInfo, expiry);
+        SingleFlightLoader singleFlightLoader = null;
+        if (spec.isSingleFlight()) {
+            singleFlightLoader = new SingleFlightLoader();
+            Cache2LMetrics.monitorSingleFlight(cacheName, singleFlightLoader);
+        }
+        CacheRefresher refresher =
+                CacheRefresher.of(
+                        cache,
+                        spec.getRefreshAfterInMinute(),
+                        spec.getDurationInMinute(),
+                        spec.getMaxRecord(),
+                        cacheName);
 
-        String cacheName = className + "." + method.getName();
-        Cache<Object, Object> cache = createCache(cache2L, method);
+        GlobalCacheInfo globalCacheInfo = null;
+        HotKeyDetector hotKeyDetector = null;
+        if (useGlobalCache) {
+            globalCacheInfo = valueInfo;
+            REDIS_CACHE_METRICS_COLLECTOR.addCache(cacheName);
+            if (hotKeyProperties.isEnabled()) {
+                hotKeyDetector = new HotKeyDetector(cacheName, hotKeyProperties);
+                Cache2LMetrics.monitorHotKeys(hotKeyDetector);
+            }
+        }
 
-        boolean useGlobalCache = cache2L.useGlobalCache();
-        if (enableGlobalCache && useGlobalCache) {
-            handleGlobalCache(method, cacheName, cache);
-        } else {
-            caches.put(cacheName, new CacheInfo(cache, null));
+        Cache<Object, Object> negativeCache = null;
+        if (spec.getNegativeDurationInSecond() > 0) {
+            negativeCache = Cache2LMetrics.build(
+                    Caffeine.newBuilder()
+                            .expireAfterWrite(Duration.ofSeconds(spec.getNegativeDurationInSecond()))
+                            .maximumSize(spec.getNegativeMaxRecord()),
+                    cacheName + ".negative");
         }
+        return new CacheInfo(
+                cacheName,
+                method,
+                cache,
+                Duration.ofMinutes(spec.getDurationInMinute()),
+                globalCacheInfo,
+                singleFlightLoader,
+                refresher,
+                CacheKeyGenerators.getInstance(spec.getKeyGenerator()),
+                spec.isBulk(),
+                negativeCache,
+                Duration.ofSeconds(spec.getNegativeDurationInSecond()),
+                expiry,
+                hotKeyDetector,
+                Cache2LMetrics.cacheMeters(cacheName));
+    }
 
-        CACHE_METRICS_COLLECTOR.addCache(cacheName, cache);
+    private static boolean isBulkMethod(Method method) {
+        if (method.getParameterCount() != 1 || !Collection.class.isAssignableFrom(method.getParameterTypes()[0])) {
+            return false;
+        }
+        return method.getGenericReturnType() instanceof ParameterizedType returnType
+                && returnType.getActualTypeArguments()[0] instanceof ParameterizedType valueType
+                && valueType.getRawType() instanceof Class<?> rawType
+                && Map.class.isAssignableFrom(rawType);
     }
 
-    private static Cache<Object, Object> createCache(Cache2L cache2L, Method method) {
-        Caffeine<Object, Object> builder = Caffeine.newBuilder()
-                .expireAfterWrite(Duration.ofMinutes(cache2L.durationInMinute()))
-                .recordStats()
-                .maximumSize(cache2L.maxRecord());
+    private static Cache<Object, Object> createCache(CacheSpec spec, GlobalCacheInfo valueInfo, CacheExpiry expiry) {
+        Method method = spec.getMethod();
+        String cacheName = spec.getName();
+        // the off-heap cache only holds serialized values, it resolves their ttl itself
+        Caffeine<Object, Object> builder =
+                spec.isOffHeap() ? Caffeine.newBuilder() : Caffeine.newBuilder().expireAfter(expiry);
+        if (spec.getMaxWeightBytes() > 0) {
+            builder = builder.maximumWeight(spec.getMaxWeightBytes())
+                    .weigher(spec.isOffHeap() ? OffHeapCache.WEIGHER : EstimatedSizeWeigher.INSTANCE);
+        } else {
+            builder = builder.maximumSize(spec.getMaxRecord());
+        }
 
-        if (cache2L.autoCache() && method.getParameterCount() == 0) {
-            builder = builder.scheduler(Scheduler.systemScheduler())
-                    .removalListener(new CustomizeRemovalListener(method));
+        RemovalListener<Object, Object> removalListener = null;
+        if (spec.isAutoCache() && method.getParameterCount() == 0) {
+            builder = builder.scheduler(Scheduler.systemScheduler());
+            removalListener = new CustomizeRemovalListener(method);
             autoLoadMethods.add(method);
         }
 
-        return builder.build();
+        if (spec.isOffHeap()) {
+            return new OffHeapCache(
+                    builder,
+                    cacheName,
+                    removalListener,
+                    valueInfo.getCodec(),
+                    valueInfo.getJavaType(),
+                    valueInfo.isOptional(),
+                    expiry);
+        }
+        if (removalListener != null) {
+            builder = builder.removalListener(removalListener);
+        }
+        return Cache2LMetrics.build(builder, cacheName);
     }
 
-    private static void handleGlobalCache(Method method, String cacheName, Cache<Object, Object> cache) {
+    private static GlobalCacheInfo createGlobalCacheInfo(CacheSpec spec) {
+        Method method = spec.getMethod();
         ParameterizedType returnType = (ParameterizedType) method.getGenericReturnType();
         TypeInfo typeInfo = extractTypeInfo(returnType);
+        RedisCodec codec = spec.getCodec() == RedisCodec.DEFAULT ? defaultCodec : spec.getCodec();
+        if (spec.isBulk()) {
+            // entries are stored one per id, the global value is the map value type
+            return new GlobalCacheInfo(
+                    false,
+                    typeInfo.valueType,
+                    null,
+                    null,
+                    null,
+                    OBJECT_MAPPER.getTypeFactory().constructType(typeInfo.valueType),
+                    Cache2LCodecs.create(codec, lz4Threshold, lz4MaxLength));
+        }
 
-        caches.put(
-                cacheName,
-                new CacheInfo(
-                        cache,
-                        new GlobalCacheInfo(
-                                typeInfo.isOptional(),
-                                typeInfo.actualType,
-                                typeInfo.wrapType,
-                                typeInfo.keyType,
-                                typeInfo.valueType)));
-        REDIS_CACHE_METRICS_COLLECTOR.addCache(cacheName);
+        return new GlobalCacheInfo(
+                typeInfo.isOptional(),
+                typeInfo.actualType,
+                typeInfo.wrapType,
+                typeInfo.keyType,
+                typeInfo.valueType,
+                constructJavaType(typeInfo),
+                Cache2LCodecs.create(codec, lz4Threshold, lz4MaxLength));
+    }
+
+    private static JavaType constructJavaType(TypeInfo typeInfo) {
+        TypeFactory typeFactory = OBJECT_MAPPER.getTypeFactory();
+        if (typeInfo.wrapType == null) {
+            return typeFactory.constructType(typeInfo.actualType);
+        }
+        if (Collection.class.isAssignableFrom(typeInfo.wrapType)) {
+            return typeFactory.constructCollectionType(
+                    (Class<? extends Collection>) typeInfo.wrapType, typeInfo.actualType);
+        }
+        return typeFactory.constructMapType(
+                (Class<? extends Map>) typeInfo.wrapType, typeInfo.keyType, typeInfo.valueType);
     }
 
     private static TypeInfo extractTypeInfo(ParameterizedType returnType) {
@@ -191,23 +355,43 @@ public class Cache2LStore {
 
     /**
      * <p>
-     * autoLoad.
+     * getAutoLoadMethods.
      * </p>
      *
-     * @param event
-     *            a {@link org.springframework.context.event.ContextRefreshedEvent}
-     *            object
+     * @return the no-arg methods whose cache is loaded on startup and reloaded
+     *         on eviction, see
+     *         {@link io.hoangtien2k3.reactify.aop.cache.warmup.CacheWarmUp}
      */
-    @Async
-    @EventListener
-    public void autoLoad(ContextRefreshedEvent event) {
-        if (!autoLoadMethods.isEmpty()) {
-            log.info("Start auto load {} cache", autoLoadMethods.size());
-            for (Method method : autoLoadMethods) {
-                Cache2LUtils.invokeMethod(method);
-            }
-            log.info("Finish auto load cache");
-        }
+    public static Set<Method> getAutoLoadMethods() {
+        return Set.copyOf(autoLoadMethods);
+    }
+
+    /**
+     * <p>
+     * getCacheInfo.
+     * </p>
+     *
+     * @param method
+     *            a {@link java.lang.reflect.Method} object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object, null
+     *         if the method is not a registered cache
+     */
+    public static CacheInfo getCacheInfo(Method method) {
+        return methodCaches.get(method);
+    }
+
+    /**
+     * <p>
+     * getCacheInfo.
+     * </p>
+     *
+     * @param key
+     *            a {@link java.lang.String} object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object, null
+     *         if the cache does not exist
+     */
+    public static CacheInfo getCacheInfo(String key) {
+        return caches.get(key);
     }
 
     /**
@@ -15,12 +15,28 @@
  */
 package io.hoangtien2k3.reactify.aop.cache;
 
+import io.hoangtien2k3.reactify.aop.cache.redis.Cache2LRedisProperties;
 import io.hoangtien2k3.reactify.config.ApplicationContextProvider;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import reactor.core.publisher.Mono;
 
 /**
@@ -41,19 +57,36 @@ public class Cache2LUtils {
      *            a {@link java.lang.reflect.Method} object
      */
     public static void invokeMethod(Method method) {
-        try {
-            Class declaringClass = method.getDeclaringClass();
-            Object t = ApplicationContextProvider.getApplicationContext().getBean(declaringClass);
-            Mono<Object> rs = (Mono<Object>) method.invoke(t);
-            rs.subscribe();
-        } catch (Exception exception) {
-            log.error(
-                    "Error when autoload cache {}.{}",
-                    method.getDeclaringClass().getSimpleName(),
-                    method.getName(),
-                    exception.getMessage(),
-                    exception);
-        }
+        invoke(method)
+                .subscribe(null, exception -> log.error(
+                        "Error when autoload cache {}.{}",
+                        method.getDeclaringClass().getSimpleName(),
+                        method.getName(),
+                        exception));
+    }
+
+    /**
+     * <p>
+     * invoke.
+     * </p>
+     *
+     * @param method
+     *            a no-arg {@link java.lang.reflect.Method} returning a
+     *            {@link reactor.core.publisher.Mono}
+     * @return the result of the method called on its bean, resolved and called
+     *         on subscription
+     */
+    public static Mono<Object> invoke(Method method) {
+        return Mono.defer(() -> {
+            try {
+                Object bean = ApplicationContextProvider.getApplicationContext().getBean(method.getDeclaringClass());
+                return (Mono<Object>) method.invoke(bean);
+            } catch (InvocationTargetException e) {
+                return Mono.error(e.getCause());
+            } catch (Exception e) {
+                return Mono.error(e);
+            }
+        });
     }
 
     /**
@@ -70,9 +103,84 @@ public class Cache2LUtils {
     public static RedisTemplate<Object, Object> getRedisCache2lTemplate(RedisConnectionFactory redisConnectionFactory) {
         RedisTemplate<Object, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(redisConnectionFactory);
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        template.setKeySerializer(serializer);
-        template.setValueSerializer(serializer);
+        // values are encoded by the codec of each cache, see GlobalCacheInfo#getCodec
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
         return template;
     }
+
+    /**
+     * <p>
+     * getReactiveRedisCache2lTemplate.
+     * </p>
+     *
+     * @param reactiveRedisConnectionFactory
+     *            a
+     *            {@link org.springframework.data.redis.connection.ReactiveRedisConnectionFactory}
+     *            object
+     * @return a {@link org.springframework.data.redis.core.ReactiveRedisTemplate}
+     *         object
+     */
+    public static ReactiveRedisTemplate<String, byte[]> getReactiveRedisCache2lTemplate(
+            ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+        RedisSerializationContext<String, byte[]> serializationContext = RedisSerializationContext
+                .<String, byte[]>newSerializationContext()
+                .key(RedisSerializer.string())
+                .value(RedisSerializer.byteArray())
+                .hashKey(RedisSerializer.string())
+                .hashValue(RedisSerializer.byteArray())
+                .build();
+        return new ReactiveRedisTemplate<>(reactiveRedisConnectionFactory, serializationContext);
+    }
+
+    /**
+     * <p>
+     * getLettuceConnectionFactory.
+     * </p>
+     *
+     * @param redisConfiguration
+     *            the topology of the nodes
+     * @param properties
+     *            the client settings
+     * @param readFrom
+     *            the read routing, null for the default
+     * @return a
+     *         {@link org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory}
+     *         object
+     */
+    public static LettuceConnectionFactory getLettuceConnectionFactory(
+            RedisConfiguration redisConfiguration, Cache2LRedisProperties properties, ReadFrom readFrom) {
+        SocketOptions socketOptions = SocketOptions.builder()
+                .connectTimeout(properties.getConnectTimeout())
+                .keepAlive(properties.isKeepAlive())
+                .build();
+        ClientOptions clientOptions = redisConfiguration instanceof RedisClusterConfiguration
+                ? ClusterClientOptions.builder().socketOptions(socketOptions).build()
+                : ClientOptions.builder().socketOptions(socketOptions).build();
+
+        Cache2LRedisProperties.Pool pool = properties.getPool();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder;
+        if (pool.isEnabled()) {
+            GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig = new GenericObjectPoolConfig<>();
+            poolConfig.setMaxTotal(pool.getMaxTotal());
+            poolConfig.setMaxIdle(pool.getMaxIdle());
+            poolConfig.setMinIdle(pool.getMinIdle());
+            poolConfig.setMaxWait(pool.getMaxWait());
+            builder = LettucePoolingClientConfiguration.builder().poolConfig(poolConfig);
+        } else {
+            builder = LettuceClientConfiguration.builder();
+        }
+        builder.commandTimeout(properties.getCommandTimeout())
+                .shutdownTimeout(properties.getShutdownTimeout())
+                .clientOptions(clientOptions);
+        if (readFrom != null) {
+            builder.readFrom(readFrom);
+        }
+
+        LettuceConnectionFactory connectionFactory =
+                new LettuceConnectionFactory(redisConfiguration, builder.build());
+        // a shared connection would bypass the pool
+        connectionFactory.setShareNativeConnection(!pool.isEnabled());
+        return connectionFactory;
+    }
 }
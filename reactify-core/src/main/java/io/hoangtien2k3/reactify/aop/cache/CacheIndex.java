@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import lombok.extern.log4j.Log4j2;
+import org.reflections.Reflections;
+import org.reflections.scanners.Scanners;
+import org.springframework.util.ClassUtils;
+
+/**
+ * <p>
+ * CacheIndex class.
+ * </p>
+ *
+ * Resolves cache annotated methods from the build-time index written by
+ * {@code reactify-cache-indexer} and falls back to a classpath scan of the
+ * base package when no index entry lies in it.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public final class CacheIndex {
+
+    /** Constant <code>INDEX_LOCATION="META-INF/reactify/cache.index"</code> */
+    public static final String INDEX_LOCATION = "META-INF/reactify/cache.index";
+
+    private static volatile List<String> indexEntries;
+
+    private CacheIndex() {}
+
+    /**
+     * <p>
+     * findMethods.
+     * </p>
+     *
+     * @param annotation
+     *            a {@link java.lang.Class} object
+     * @param basePackage
+     *            a {@link java.lang.String} object
+     * @return a {@link java.util.Set} object
+     */
+    public static Set<Method> findMethods(Class<? extends Annotation> annotation, String basePackage) {
+        List<String> entries = getIndexEntries();
+        if (!isIndexed(entries, basePackage)) {
+            // the index on the classpath may come from a library jar only
+            log.info("No cache index for {}, scanning it for @{}", basePackage, annotation.getSimpleName());
+            Reflections reflections = new Reflections(basePackage, Scanners.MethodsAnnotated);
+            return reflections.get(Scanners.MethodsAnnotated.with(annotation).as(Method.class));
+        }
+
+        String prefix = annotation.getName() + "=";
+        Set<Method> methods = new LinkedHashSet<>();
+        for (String entry : entries) {
+            if (entry.startsWith(prefix) && entry.startsWith(basePackage, prefix.length())) {
+                Method method = resolveMethod(entry.substring(prefix.length()));
+                if (method != null && method.isAnnotationPresent(annotation)) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Whether a module under the base package wrote an index, whatever the
+     * annotation of its entries.
+     */
+    private static boolean isIndexed(List<String> entries, String basePackage) {
+        for (String entry : entries) {
+            int separator = entry.indexOf('=');
+            if (separator >= 0 && entry.startsWith(basePackage, separator + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> getIndexEntries() {
+        if (indexEntries == null) {
+            indexEntries = readIndexEntries();
+        }
+        return indexEntries;
+    }
+
+    private static List<String> readIndexEntries() {
+        List<String> entries = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = ClassUtils.getDefaultClassLoader().getResources(INDEX_LOCATION);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                try (BufferedReader reader =
+                        new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            entries.add(line.trim());
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Can't read cache index {}", INDEX_LOCATION, ex);
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static Method resolveMethod(String methodEntry) {
+        try {
+            int hash = methodEntry.indexOf('#');
+            int open = methodEntry.indexOf('(', hash);
+            ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+            Class<?> declaringClass = ClassUtils.forName(methodEntry.substring(0, hash), classLoader);
+            String methodName = methodEntry.substring(hash + 1, open);
+            String parameters = methodEntry.substring(open + 1, methodEntry.length() - 1);
+            List<Class<?>> parameterTypes = new ArrayList<>();
+            if (!parameters.isEmpty()) {
+                for (String parameter : parameters.split(",")) {
+                    parameterTypes.add(ClassUtils.forName(parameter, classLoader));
+                }
+            }
+            return declaringClass.getDeclaredMethod(methodName, parameterTypes.toArray(new Class<?>[0]));
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError | RuntimeException ex) {
+            log.warn("Skip cache index entry {}: {}", methodEntry, ex.toString());
+            return null;
+        }
+    }
+}
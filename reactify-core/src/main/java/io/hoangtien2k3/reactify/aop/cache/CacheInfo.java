@@ -16,19 +16,81 @@
 package io.hoangtien2k3.reactify.aop.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheExpiry;
+import io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyDetector;
+import io.hoangtien2k3.reactify.aop.cache.key.CacheKeyGenerator;
+import io.hoangtien2k3.reactify.aop.cache.metrics.CacheMeters;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import lombok.Value;
 
 /**
  * <p>
  * CacheInfo class.
  * </p>
  *
+ * Immutable descriptor of one cached method, built once at startup so the
+ * aspect needs a single lookup per call.
+ *
  * @author hoangtien2k3
  */
-@Data
-@AllArgsConstructor
+@Value
 public class CacheInfo {
-    private Cache<Object, Object> cache;
-    private GlobalCacheInfo globalCacheInfo;
+    /**
+     * Marker of a negative entry, the method returned an empty {@code Mono}.
+     */
+    public static final Object NO_VALUE = new Object();
+
+    String name;
+    Method method;
+    Cache<Object, Object> cache;
+    Duration ttl;
+    GlobalCacheInfo globalCacheInfo;
+    SingleFlightLoader singleFlightLoader;
+    CacheRefresher refresher;
+    CacheKeyGenerator keyGenerator;
+    boolean bulk;
+    Cache<Object, Object> negativeCache;
+    Duration negativeTtl;
+    CacheExpiry expiry;
+    HotKeyDetector hotKeyDetector;
+    CacheMeters meters;
+
+    /**
+     * <p>
+     * useGlobalCache.
+     * </p>
+     *
+     * @return a boolean
+     */
+    public boolean useGlobalCache() {
+        return globalCacheInfo != null;
+    }
+
+    /**
+     * <p>
+     * useNegativeCache.
+     * </p>
+     *
+     * @return a boolean
+     */
+    public boolean useNegativeCache() {
+        return negativeCache != null;
+    }
+
+    /**
+     * <p>
+     * ttlOf.
+     * </p>
+     *
+     * @param value
+     *            the cached value
+     * @return the time to live of the entry holding the value
+     */
+    public Duration ttlOf(Object value) {
+        if (value == NO_VALUE) {
+            return negativeTtl;
+        }
+        return expiry != null ? expiry.ttlOf(value) : ttl;
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ * CacheRefresher class.
+ * </p>
+ *
+ * Refresh-ahead (stale-while-revalidate) policy: when a cached entry is older
+ * than the refresh duration, the caller keeps the cached value while the
+ * annotated method is re-invoked in the background with the same arguments.
+ * The keys written less than the refresh duration ago are kept in a companion
+ * cache expiring after that duration, so the age of an entry does not depend on
+ * its time to live, which may be jittered, resolved from the value or extended
+ * for a hot key. A key missing from the companion cache, e.g. evicted by its
+ * size bound, is refreshed once more than needed.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public class CacheRefresher {
+
+    private final Cache<Object, Object> cache;
+    private final Cache<Object, Boolean> freshKeys;
+    private final Set<Object> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * <p>
+     * Constructor for CacheRefresher.
+     * </p>
+     *
+     * @param cache
+     *            a {@link com.github.benmanes.caffeine.cache.Cache} object
+     * @param refreshAfter
+     *            a {@link java.time.Duration} object
+     * @param maximumSize
+     *            the maximum number of fresh keys remembered
+     */
+    public CacheRefresher(Cache<Object, Object> cache, Duration refreshAfter, long maximumSize) {
+        this.cache = cache;
+        this.freshKeys = Caffeine.newBuilder()
+                .expireAfterWrite(refreshAfter)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * <p>
+     * onWrite.
+     * </p>
+     *
+     * @param key
+     *            the key just written in the cache
+     */
+    public void onWrite(Object key) {
+        freshKeys.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * <p>
+     * refreshIfStale.
+     * </p>
+     *
+     * @param key
+     *            a {@link java.lang.Object} object
+     * @param loader
+     *            a {@link java.util.function.Supplier} object
+     */
+    public void refreshIfStale(Object key, Supplier<Mono<Object>> loader) {
+        if (freshKeys.getIfPresent(key) != null || !refreshingKeys.add(key)) {
+            return;
+        }
+        Mono.defer(loader)
+                .doFinally(signal -> refreshingKeys.remove(key))
+                .subscribe(
+                        value -> {
+                            if (!(value instanceof Optional && ((Optional) value).isEmpty())) {
+                                cache.put(key, value);
+                                onWrite(key);
+                            }
+                        },
+                        error -> log.warn("Refresh cache with key {} fail", key, error));
+    }
+
+    /**
+     * <p>
+     * of.
+     * </p>
+     *
+     * @param cache
+     *            a {@link com.github.benmanes.caffeine.cache.Cache} object
+     * @param refreshAfterInMinute
+     *            a int
+     * @param durationInMinute
+     *            a int
+     * @param maxRecord
+     *            the maximum number of entries of the cache
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.CacheRefresher} object,
+     *         null if refresh-ahead is disabled
+     */
+    public static CacheRefresher of(
+            Cache<Object, Object> cache,
+            int refreshAfterInMinute,
+            int durationInMinute,
+            int maxRecord,
+            String cacheName) {
+        if (refreshAfterInMinute <= 0) {
+            return null;
+        }
+        if (refreshAfterInMinute >= durationInMinute) {
+            log.warn(
+                    "Cache {} refreshAfterInMinute {} is not less than durationInMinute {}, refresh-ahead is disabled",
+                    cacheName,
+                    refreshAfterInMinute,
+                    durationInMinute);
+            return null;
+        }
+        return new CacheRefresher(cache, Duration.ofMinutes(refreshAfterInMinute), Math.max(1, maxRecord));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import io.hoangtien2k3.reactify.annotations.LocalCache;
+import io.hoangtien2k3.reactify.aop.cache.codec.RedisCodec;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheTtlResolver;
+import io.hoangtien2k3.reactify.aop.cache.expiry.DefaultCacheTtlResolver;
+import io.hoangtien2k3.reactify.aop.cache.key.CacheKeyGenerator;
+import java.lang.reflect.Method;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * <p>
+ * CacheSpec class.
+ * </p>
+ *
+ * The configuration of one cached method, read from its {@link Cache2L} or
+ * {@link LocalCache} annotation. A {@link LocalCache} is a {@link Cache2L}
+ * without the global cache and the options that only apply to it.
+ *
+ * @author hoangtien2k3
+ */
+@Value
+@Builder
+public class CacheSpec {
+    Method method;
+    String name;
+    int durationInMinute;
+    int maxRecord;
+    long maxWeightBytes;
+    boolean autoCache;
+    boolean criticalWarmUp;
+    int refreshAfterInMinute;
+    Class<? extends CacheKeyGenerator> keyGenerator;
+    int negativeDurationInSecond;
+    int negativeMaxRecord;
+    boolean useGlobalCache;
+    boolean singleFlight;
+    RedisCodec codec;
+    boolean bulk;
+    boolean offHeap;
+    int ttlJitterPercent;
+    Class<? extends CacheTtlResolver> ttlFrom;
+
+    /**
+     * <p>
+     * of.
+     * </p>
+     *
+     * @param method
+     *            a {@link java.lang.reflect.Method} object
+     * @return the spec of the method, {@link Cache2L} first, null if the method
+     *         is not cached
+     */
+    public static CacheSpec of(Method method) {
+        Cache2L cache2L = method.getAnnotation(Cache2L.class);
+        if (cache2L != null) {
+            return of(method, cache2L);
+        }
+        LocalCache localCache = method.getAnnotation(LocalCache.class);
+        return localCache != null ? of(method, localCache) : null;
+    }
+
+    /**
+     * <p>
+     * of.
+     * </p>
+     *
+     * @param method
+     *            a {@link java.lang.reflect.Method} object
+     * @param cache2L
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.Cache2L} object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.CacheSpec} object
+     */
+    public static CacheSpec of(Method method, Cache2L cache2L) {
+        return CacheSpec.builder()
+                .method(method)
+                .name(nameOf(method))
+                .durationInMinute(cache2L.durationInMinute())
+                .maxRecord(cache2L.maxRecord())
+                .maxWeightBytes(cache2L.maxWeightBytes())
+                .autoCache(cache2L.autoCache())
+                .criticalWarmUp(cache2L.criticalWarmUp())
+                .refreshAfterInMinute(cache2L.refreshAfterInMinute())
+                .keyGenerator(cache2L.keyGenerator())
+                .negativeDurationInSecond(cache2L.negativeDurationInSecond())
+                .negativeMaxRecord(cache2L.negativeMaxRecord())
+                .useGlobalCache(cache2L.useGlobalCache())
+                .singleFlight(cache2L.singleFlight())
+                .codec(cache2L.codec())
+                .bulk(cache2L.bulk())
+                .offHeap(cache2L.offHeap())
+                .ttlJitterPercent(cache2L.ttlJitterPercent())
+                .ttlFrom(cache2L.ttlFrom())
+                .build();
+    }
+
+    /**
+     * <p>
+     * of.
+     * </p>
+     *
+     * @param method
+     *            a {@link java.lang.reflect.Method} object
+     * @param localCache
+     *            a {@link io.hoangtien2k3.reactify.annotations.LocalCache}
+     *            object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.CacheSpec} object
+     */
+    public static CacheSpec of(Method method, LocalCache localCache) {
+        return CacheSpec.builder()
+                .method(method)
+                .name(nameOf(method))
+                .durationInMinute(localCache.durationInMinute())
+                .maxRecord(localCache.maxRecord())
+                .maxWeightBytes(localCache.maxWeightBytes())
+                .autoCache(localCache.autoCache())
+                .criticalWarmUp(localCache.criticalWarmUp())
+                .refreshAfterInMinute(localCache.refreshAfterInMinute())
+                .keyGenerator(localCache.keyGenerator())
+                .negativeDurationInSecond(localCache.negativeDurationInSecond())
+                .negativeMaxRecord(localCache.negativeMaxRecord())
+                .codec(RedisCodec.DEFAULT)
+                .ttlFrom(DefaultCacheTtlResolver.class)
+                .build();
+    }
+
+    private static String nameOf(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
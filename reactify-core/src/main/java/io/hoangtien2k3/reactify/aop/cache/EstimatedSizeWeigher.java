@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>
+ * EstimatedSizeWeigher class.
+ * </p>
+ *
+ * Weighs a cache entry by its estimated retained size in bytes. Strings,
+ * boxed primitives and arrays are estimated from their layout, other objects
+ * from a shallow walk of their fields down to {@value #MAX_DEPTH} levels.
+ * Collections, maps and object arrays are extrapolated from their first
+ * {@value #SAMPLE} elements, so weighing costs about the same whatever the size
+ * of the value.
+ *
+ * @author hoangtien2k3
+ */
+public final class EstimatedSizeWeigher implements Weigher<Object, Object> {
+
+    /** Shared instance, the weigher is stateless. */
+    public static final EstimatedSizeWeigher INSTANCE = new EstimatedSizeWeigher();
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 8;
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int OPAQUE_SIZE = 32;
+    private static final int SAMPLE = 16;
+    private static final int MAX_DEPTH = 4;
+
+    /** The instance fields of a class, null when they are not accessible, e.g. in a JDK module. */
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = type;
+                    current != null && current != Object.class;
+                    current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (!field.getType().isPrimitive() && !field.trySetAccessible()) {
+                        return null;
+                    }
+                    fields.add(field);
+                }
+            }
+            return fields.toArray(Field[]::new);
+        }
+    };
+
+    private EstimatedSizeWeigher() {}
+
+    /** {@inheritDoc} */
+    @Override
+    public int weigh(Object key, Object value) {
+        long size = ENTRY_OVERHEAD + estimate(key, MAX_DEPTH) + estimate(value, MAX_DEPTH);
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static long estimate(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            return 2L * OBJECT_HEADER + 8 + string.length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT_HEADER + 8;
+        }
+        if (value instanceof Enum<?>) {
+            // shared constant
+            return 0;
+        }
+        if (value instanceof Optional<?> optional) {
+            return OBJECT_HEADER + estimate(optional.orElse(null), depth);
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray() && type.getComponentType().isPrimitive()) {
+            return OBJECT_HEADER + (long) Array.getLength(value) * primitiveSize(type.getComponentType());
+        }
+        if (depth == 0) {
+            return OBJECT_HEADER;
+        }
+        if (value instanceof Collection<?> collection) {
+            return 2L * OBJECT_HEADER
+                    + (long) REFERENCE * collection.size()
+                    + estimateSample(collection, collection.size(), depth - 1);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return 3L * OBJECT_HEADER
+                    + (long) (OBJECT_HEADER + 3 * REFERENCE) * map.size()
+                    + estimateSample(map.entrySet(), map.size(), depth - 1);
+        }
+        if (value instanceof Map.Entry<?, ?> entry) {
+            return estimate(entry.getKey(), depth) + estimate(entry.getValue(), depth);
+        }
+        if (value instanceof Object[] array) {
+            return OBJECT_HEADER
+                    + (long) REFERENCE * array.length
+                    + estimateSample(Arrays.asList(array), array.length, depth - 1);
+        }
+        return estimateFields(value, depth - 1);
+    }
+
+    /**
+     * The size of the first elements, scaled to all the elements.
+     */
+    private static long estimateSample(Iterable<?> elements, int size, int depth) {
+        long sampled = 0;
+        int count = 0;
+        for (Object element : elements) {
+            if (count == SAMPLE) {
+                break;
+            }
+            sampled += estimate(element, depth);
+            count++;
+        }
+        return count == 0 ? 0 : sampled * size / count;
+    }
+
+    private static long estimateFields(Object value, int depth) {
+        Field[] fields = FIELDS.get(value.getClass());
+        if (fields == null) {
+            return OPAQUE_SIZE;
+        }
+        long size = OBJECT_HEADER;
+        for (Field field : fields) {
+            Class<?> type = field.getType();
+            if (type.isPrimitive()) {
+                size += primitiveSize(type);
+                continue;
+            }
+            size += REFERENCE;
+            try {
+                size += estimate(field.get(value), depth);
+            } catch (IllegalAccessException e) {
+                size += OBJECT_HEADER;
+            }
+        }
+        return size;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -15,8 +15,9 @@
  */
 package io.hoangtien2k3.reactify.aop.cache;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.fasterxml.jackson.databind.JavaType;
+import io.hoangtien2k3.reactify.aop.cache.codec.Cache2LCodec;
+import lombok.Value;
 
 /**
  * <p>
@@ -25,12 +26,13 @@ import lombok.Data;
  *
  * @author hoangtien2k3
  */
-@Data
-@AllArgsConstructor
+@Value
 public class GlobalCacheInfo {
-    private boolean isOptional;
-    private Class<?> type;
-    private Class<?> wrapType;
-    private Class<?> mapKeyType;
-    private Class<?> mapValueType;
+    boolean isOptional;
+    Class<?> type;
+    Class<?> wrapType;
+    Class<?> mapKeyType;
+    Class<?> mapValueType;
+    JavaType javaType;
+    Cache2LCodec codec;
 }
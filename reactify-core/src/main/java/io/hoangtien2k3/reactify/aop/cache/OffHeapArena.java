@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * OffHeapArena class.
+ * </p>
+ *
+ * Slab allocator of direct memory for the {@link OffHeapCache}. Direct memory
+ * is reserved in slabs of {@value #SLAB_SIZE} bytes, each cut in chunks of one
+ * power-of-two size class. A value is stored in chunks of at most
+ * {@value #MAX_CHUNK_SIZE} bytes, the last one of the smallest class holding
+ * the rest. A freed chunk goes back to the free list of its class and is reused
+ * by the next allocation, so the direct memory reserved stays at the peak of the
+ * caches instead of depending on the garbage collector to release a buffer per
+ * entry. Slabs are never released.
+ *
+ * @author hoangtien2k3
+ */
+final class OffHeapArena {
+
+    private static final int MIN_CHUNK_SHIFT = 6;
+    private static final int MAX_CHUNK_SHIFT = 16;
+    private static final int MAX_CHUNK_SIZE = 1 << MAX_CHUNK_SHIFT;
+    private static final int SLAB_SIZE = 1 << 20;
+
+    private final Queue<ByteBuffer>[] freeChunks;
+    private final LongAdder reservedBytes = new LongAdder();
+
+    /**
+     * <p>
+     * Constructor for OffHeapArena.
+     * </p>
+     */
+    @SuppressWarnings("unchecked")
+    OffHeapArena() {
+        freeChunks = new Queue[MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT + 1];
+        for (int i = 0; i < freeChunks.length; i++) {
+            freeChunks[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * <p>
+     * allocate.
+     * </p>
+     *
+     * @param length
+     *            the number of bytes to store
+     * @return the chunks holding {@code length} bytes, in order, to give back
+     *         to {@link #free(ByteBuffer[])} once unused
+     */
+    ByteBuffer[] allocate(int length) {
+        int fullChunks = length / MAX_CHUNK_SIZE;
+        int rest = length % MAX_CHUNK_SIZE;
+        ByteBuffer[] chunks = new ByteBuffer[fullChunks + (rest > 0 || length == 0 ? 1 : 0)];
+        for (int i = 0; i < fullChunks; i++) {
+            chunks[i] = allocateChunk(MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT);
+        }
+        if (fullChunks < chunks.length) {
+            chunks[fullChunks] = allocateChunk(sizeClassOf(rest));
+        }
+        return chunks;
+    }
+
+    /**
+     * <p>
+     * free.
+     * </p>
+     *
+     * @param chunks
+     *            chunks of {@link #allocate(int)}, not to be used afterwards
+     */
+    void free(ByteBuffer[] chunks) {
+        for (ByteBuffer chunk : chunks) {
+            freeChunks[sizeClassOf(chunk.capacity())].offer(chunk);
+        }
+    }
+
+    /**
+     * <p>
+     * getReservedBytes.
+     * </p>
+     *
+     * @return the direct memory reserved by the slabs
+     */
+    long getReservedBytes() {
+        return reservedBytes.sum();
+    }
+
+    private ByteBuffer allocateChunk(int sizeClass) {
+        ByteBuffer chunk = freeChunks[sizeClass].poll();
+        if (chunk != null) {
+            return chunk;
+        }
+        int chunkSize = 1 << (sizeClass + MIN_CHUNK_SHIFT);
+        ByteBuffer slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+        reservedBytes.add(SLAB_SIZE);
+        for (int offset = chunkSize; offset < SLAB_SIZE; offset += chunkSize) {
+            freeChunks[sizeClass].offer(slab.slice(offset, chunkSize));
+        }
+        return slab.slice(0, chunkSize);
+    }
+
+    private static int sizeClassOf(int length) {
+        int shift = length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+        return Math.max(shift, MIN_CHUNK_SHIFT) - MIN_CHUNK_SHIFT;
+    }
+}
@@ -0,0 +1,737 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.hoangtien2k3.reactify.aop.cache.codec.Cache2LCodec;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheExpiry;
+import io.hoangtien2k3.reactify.aop.cache.metrics.Cache2LMetrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * <p>
+ * OffHeapCache class.
+ * </p>
+ *
+ * Local cache keeping its values serialized in direct memory, so that large
+ * caches do not grow the heap scanned by the garbage collector. Keys and the
+ * entry bookkeeping stay in a Caffeine cache on the heap, every hit decodes the
+ * value. The direct memory comes from a shared {@link OffHeapArena} and is
+ * given back when an entry is removed, once no reader still copies it.
+ * {@link #asMap()} and {@link #policy()} decode the values they expose, the map
+ * is read-only apart from removals.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public class OffHeapCache implements Cache<Object, Object> {
+
+    /** Weighs an entry by the direct memory of its value. */
+    public static final Weigher<Object, Object> WEIGHER = (key, value) -> ((Slot) value).capacity();
+
+    private static final OffHeapArena ARENA = new OffHeapArena();
+
+    private final Cache<Object, Object> entries;
+    private final Cache2LCodec codec;
+    private final JavaType type;
+    private final boolean optional;
+    private final CacheExpiry expiry;
+
+    /**
+     * <p>
+     * Constructor for OffHeapCache.
+     * </p>
+     *
+     * @param builder
+     *            the builder of the cache holding the entries, bounded by size
+     *            or by {@link #WEIGHER}, without expiry nor removal listener
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @param removalListener
+     *            notified of each removed key, without its value, may be null
+     * @param codec
+     *            the codec serializing the values
+     * @param type
+     *            the type of the values, the wrapped type for optional values
+     * @param optional
+     *            whether the values are {@link java.util.Optional}
+     * @param expiry
+     *            the per-entry expiry of the values
+     */
+    public OffHeapCache(
+            Caffeine<Object, Object> builder,
+            String cacheName,
+            RemovalListener<Object, Object> removalListener,
+            Cache2LCodec codec,
+            JavaType type,
+            boolean optional,
+            CacheExpiry expiry) {
+        this.entries = Cache2LMetrics.build(
+                builder.expireAfter(new EntryExpiry()).removalListener((key, value, cause) -> {
+                    ((Slot) value).release();
+                    if (removalListener != null) {
+                        removalListener.onRemoval(key, null, cause);
+                    }
+                }),
+                cacheName);
+        this.codec = codec;
+        this.type = type;
+        this.optional = optional;
+        this.expiry = expiry;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getIfPresent(Object key) {
+        Slot entry = (Slot) entries.getIfPresent(key);
+        return entry == null ? null : decode(key, entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The mapping function runs at most once per key at a time, concurrent
+     * callers of the same key wait for it.
+     */
+    @Override
+    public Object get(Object key, Function<? super Object, ? extends Object> mappingFunction) {
+        while (true) {
+            Object[] loaded = new Object[1];
+            Slot entry = (Slot) entries.get(key, k -> {
+                loaded[0] = mappingFunction.apply(k);
+                return loaded[0] == null ? null : encode(loaded[0]);
+            });
+            if (loaded[0] != null || entry == null) {
+                return loaded[0];
+            }
+            Object value = decode(key, entry);
+            if (value != null || !entry.isReleased()) {
+                return value;
+            }
+            // removed meanwhile, load it again
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<Object, Object> getAllPresent(Iterable<? extends Object> keys) {
+        Map<Object, Object> result = new HashMap<>();
+        for (Object key : keys) {
+            Object value = getIfPresent(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<Object, Object> getAll(
+            Iterable<? extends Object> keys,
+            Function<? super Set<? extends Object>, ? extends Map<? extends Object, ? extends Object>>
+                    mappingFunction) {
+        Map<Object, Object> result = getAllPresent(keys);
+        Set<Object> missingKeys = new LinkedHashSet<>();
+        for (Object key : keys) {
+            if (!result.containsKey(key)) {
+                missingKeys.add(key);
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            Map<? extends Object, ? extends Object> loaded = mappingFunction.apply(missingKeys);
+            putAll(loaded);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put(Object key, Object value) {
+        Slot entry = encode(value);
+        if (entry != null) {
+            entries.put(key, entry);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putAll(Map<? extends Object, ? extends Object> map) {
+        map.forEach(this::put);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidate(Object key) {
+        entries.invalidate(key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidateAll(Iterable<? extends Object> keys) {
+        entries.invalidateAll(keys);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long estimatedSize() {
+        return entries.estimatedSize();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CacheStats stats() {
+        return entries.stats();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ConcurrentMap<Object, Object> asMap() {
+        return new DecodedMap();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cleanUp() {
+        entries.cleanUp();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Policy<Object, Object> policy() {
+        return new DecodedPolicy(entries.policy());
+    }
+
+    /**
+     * Serializes a value into the arena, null if it is empty or can not be
+     * encoded.
+     */
+    private Slot encode(Object value) {
+        Object raw = optional ? ((Optional<?>) value).orElse(null) : value;
+        if (raw == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = codec.encode(raw);
+            // the entries cache cannot read the value, its ttl is resolved here
+            return new Slot(bytes, expiry.ttlOf(value).toNanos());
+        } catch (IOException e) {
+            log.warn("Encode off-heap cache value fail: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Deserializes the value of an entry, null if it was removed meanwhile or
+     * can not be decoded.
+     */
+    private Object decode(Object key, Slot entry) {
+        byte[] bytes = entry.read();
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return decode(bytes);
+        } catch (IOException e) {
+            log.warn("Decode off-heap cache value fail: {}", e.getMessage());
+            entries.asMap().remove(key, entry);
+            return null;
+        }
+    }
+
+    /**
+     * Deserializes a value copied out of a removed entry, whose chunks may
+     * already be freed.
+     */
+    private Object decodeRemoved(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return decode(bytes);
+        } catch (IOException e) {
+            log.warn("Decode off-heap cache value fail: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Object decode(byte[] bytes) throws IOException {
+        Object value = codec.decode(bytes, type);
+        return optional ? Optional.ofNullable(value) : value;
+    }
+
+    private Map<Object, Object> decodeAll(Map<Object, Object> encoded) {
+        Map<Object, Object> decoded = new LinkedHashMap<>();
+        encoded.forEach((key, entry) -> {
+            Object value = decode(key, (Slot) entry);
+            if (value != null) {
+                decoded.put(key, value);
+            }
+        });
+        return decoded;
+    }
+
+    /**
+     * Read-only view of the entries decoding their values, only removals are
+     * supported.
+     */
+    private final class DecodedMap extends AbstractMap<Object, Object> implements ConcurrentMap<Object, Object> {
+        private final ConcurrentMap<Object, Object> map = entries.asMap();
+
+        @Override
+        public Object get(Object key) {
+            Slot entry = (Slot) map.get(key);
+            return entry == null ? null : decode(key, entry);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public Object remove(Object key) {
+            // copied before the removal listener frees the chunks
+            byte[][] removed = new byte[1][];
+            map.computeIfPresent(key, (k, entry) -> {
+                removed[0] = ((Slot) entry).read();
+                return null;
+            });
+            return decodeRemoved(removed[0]);
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Set<Object> keySet() {
+            return map.keySet();
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<Object, Object>> iterator() {
+                    return new DecodedIterator(map.entrySet().iterator());
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+
+        @Override
+        public Object putIfAbsent(Object key, Object value) {
+            throw new UnsupportedOperationException("Off-heap cache map view is read-only");
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            throw new UnsupportedOperationException("Off-heap cache map view is read-only");
+        }
+
+        @Override
+        public boolean replace(Object key, Object oldValue, Object newValue) {
+            throw new UnsupportedOperationException("Off-heap cache map view is read-only");
+        }
+
+        @Override
+        public Object replace(Object key, Object value) {
+            throw new UnsupportedOperationException("Off-heap cache map view is read-only");
+        }
+    }
+
+    /**
+     * Iterates the decoded entries, skipping the ones removed meanwhile.
+     */
+    private final class DecodedIterator implements Iterator<Map.Entry<Object, Object>> {
+        private final Iterator<Map.Entry<Object, Object>> iterator;
+        private Map.Entry<Object, Object> next;
+        private Object lastKey;
+
+        private DecodedIterator(Iterator<Map.Entry<Object, Object>> iterator) {
+            this.iterator = iterator;
+            this.next = advance();
+        }
+
+        private Map.Entry<Object, Object> advance() {
+            while (iterator.hasNext()) {
+                Map.Entry<Object, Object> entry = iterator.next();
+                Object value = decode(entry.getKey(), (Slot) entry.getValue());
+                if (value != null) {
+                    return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), value);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<Object, Object> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Object, Object> current = next;
+            next = advance();
+            lastKey = current.getKey();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            entries.invalidate(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * Policy of the entries decoding the values it exposes and encoding the
+     * values it writes.
+     */
+    private final class DecodedPolicy implements Policy<Object, Object> {
+        private final Policy<Object, Object> policy;
+
+        private DecodedPolicy(Policy<Object, Object> policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public boolean isRecordingStats() {
+            return policy.isRecordingStats();
+        }
+
+        @Override
+        public Object getIfPresentQuietly(Object key) {
+            Slot entry = (Slot) policy.getIfPresentQuietly(key);
+            return entry == null ? null : decode(key, entry);
+        }
+
+        @Override
+        public CacheEntry<Object, Object> getEntryIfPresentQuietly(Object key) {
+            CacheEntry<Object, Object> entry = policy.getEntryIfPresentQuietly(key);
+            Object value = entry == null ? null : decode(key, (Slot) entry.getValue());
+            return value == null ? null : new DecodedCacheEntry(entry, value);
+        }
+
+        @Override
+        public Map<Object, CompletableFuture<Object>> refreshes() {
+            return Map.of();
+        }
+
+        @Override
+        public Optional<Eviction<Object, Object>> eviction() {
+            return policy.eviction().map(DecodedEviction::new);
+        }
+
+        @Override
+        public Optional<FixedExpiration<Object, Object>> expireAfterAccess() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<FixedExpiration<Object, Object>> expireAfterWrite() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<VarExpiration<Object, Object>> expireVariably() {
+            return policy.expireVariably().map(DecodedVarExpiration::new);
+        }
+
+        @Override
+        public Optional<FixedRefresh<Object, Object>> refreshAfterWrite() {
+            return Optional.empty();
+        }
+    }
+
+    private static final class DecodedCacheEntry extends AbstractMap.SimpleImmutableEntry<Object, Object>
+            implements Policy.CacheEntry<Object, Object> {
+        private final Policy.CacheEntry<Object, Object> entry;
+
+        private DecodedCacheEntry(Policy.CacheEntry<Object, Object> entry, Object value) {
+            super(entry.getKey(), value);
+            this.entry = entry;
+        }
+
+        @Override
+        public int weight() {
+            return entry.weight();
+        }
+
+        @Override
+        public long expiresAt() {
+            return entry.expiresAt();
+        }
+
+        @Override
+        public long refreshableAt() {
+            return entry.refreshableAt();
+        }
+
+        @Override
+        public long snapshotAt() {
+            return entry.snapshotAt();
+        }
+    }
+
+    private final class DecodedEviction implements Policy.Eviction<Object, Object> {
+        private final Policy.Eviction<Object, Object> eviction;
+
+        private DecodedEviction(Policy.Eviction<Object, Object> eviction) {
+            this.eviction = eviction;
+        }
+
+        @Override
+        public boolean isWeighted() {
+            return eviction.isWeighted();
+        }
+
+        @Override
+        public OptionalInt weightOf(Object key) {
+            return eviction.weightOf(key);
+        }
+
+        @Override
+        public OptionalLong weightedSize() {
+            return eviction.weightedSize();
+        }
+
+        @Override
+        public long getMaximum() {
+            return eviction.getMaximum();
+        }
+
+        @Override
+        public void setMaximum(long maximum) {
+            eviction.setMaximum(maximum);
+        }
+
+        @Override
+        public Map<Object, Object> coldest(int limit) {
+            return decodeAll(eviction.coldest(limit));
+        }
+
+        @Override
+        public Map<Object, Object> hottest(int limit) {
+            return decodeAll(eviction.hottest(limit));
+        }
+    }
+
+    private final class DecodedVarExpiration implements Policy.VarExpiration<Object, Object> {
+        private final Policy.VarExpiration<Object, Object> expiration;
+
+        private DecodedVarExpiration(Policy.VarExpiration<Object, Object> expiration) {
+            this.expiration = expiration;
+        }
+
+        @Override
+        public OptionalLong getExpiresAfter(Object key, TimeUnit unit) {
+            return expiration.getExpiresAfter(key, unit);
+        }
+
+        @Override
+        public void setExpiresAfter(Object key, long duration, TimeUnit unit) {
+            expiration.setExpiresAfter(key, duration, unit);
+        }
+
+        @Override
+        public Object putIfAbsent(Object key, Object value, long duration, TimeUnit unit) {
+            Slot entry = encode(value);
+            if (entry == null) {
+                return null;
+            }
+            Slot present = (Slot) expiration.putIfAbsent(key, entry, duration, unit);
+            if (present == null) {
+                return null;
+            }
+            entry.release();
+            return decode(key, present);
+        }
+
+        @Override
+        public Object put(Object key, Object value, long duration, TimeUnit unit) {
+            Slot entry = encode(value);
+            if (entry == null) {
+                return null;
+            }
+            // copied before the removal listener frees the chunks
+            byte[][] replaced = new byte[1][];
+            expiration.compute(
+                    key,
+                    (k, previous) -> {
+                        replaced[0] = previous == null ? null : ((Slot) previous).read();
+                        return entry;
+                    },
+                    Duration.ofNanos(unit.toNanos(duration)));
+            return decodeRemoved(replaced[0]);
+        }
+
+        @Override
+        public Map<Object, Object> oldest(int limit) {
+            return decodeAll(expiration.oldest(limit));
+        }
+
+        @Override
+        public Map<Object, Object> youngest(int limit) {
+            return decodeAll(expiration.youngest(limit));
+        }
+    }
+
+    /**
+     * A value serialized in chunks of the arena. The cache holds one reference,
+     * each read holds another while it copies the chunks, the chunks are freed
+     * when the last reference is released.
+     */
+    private static final class Slot {
+        private final ByteBuffer[] chunks;
+        private final int length;
+        private final long ttlNanos;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Slot(byte[] bytes, long ttlNanos) {
+            this.chunks = ARENA.allocate(bytes.length);
+            this.length = bytes.length;
+            this.ttlNanos = ttlNanos;
+            int offset = 0;
+            for (ByteBuffer chunk : chunks) {
+                int size = Math.min(chunk.capacity(), length - offset);
+                chunk.put(0, bytes, offset, size);
+                offset += size;
+            }
+        }
+
+        private int capacity() {
+            int capacity = 0;
+            for (ByteBuffer chunk : chunks) {
+                capacity += chunk.capacity();
+            }
+            return capacity;
+        }
+
+        private boolean isReleased() {
+            return references.get() == 0;
+        }
+
+        /**
+         * Copies the value, null if the entry was already released.
+         */
+        private byte[] read() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return null;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            try {
+                byte[] bytes = new byte[length];
+                int offset = 0;
+                for (ByteBuffer chunk : chunks) {
+                    int size = Math.min(chunk.capacity(), length - offset);
+                    // absolute get, the chunk is shared by concurrent readers
+                    chunk.get(0, bytes, offset, size);
+                    offset += size;
+                }
+                return bytes;
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                ARENA.free(chunks);
+            }
+        }
+    }
+
+    /**
+     * Expires each entry after the ttl resolved when its value was encoded, a
+     * read does not change it.
+     */
+    private static final class EntryExpiry implements Expiry<Object, Object> {
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return ((Slot) value).ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return ((Slot) value).ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import java.util.List;
+import java.util.Map;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ * RemoteCacheTier interface.
+ * </p>
+ *
+ * The shared tier behind the local cache of a {@link Cache2L} with
+ * {@code useGlobalCache}. The local tier is the Caffeine cache of the
+ * {@link CacheInfo}, on heap or {@link OffHeapCache}. The default tier is
+ * {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisCacheTier}, a
+ * {@code @Primary} bean of this type replaces it.
+ *
+ * Implementations never fail: an unavailable tier reads as a miss and drops
+ * writes. A negative entry is read and written as {@link CacheInfo#NO_VALUE}.
+ *
+ * @author hoangtien2k3
+ */
+public interface RemoteCacheTier {
+
+    /**
+     * <p>
+     * get.
+     * </p>
+     *
+     * @param key
+     *            the global key
+     * @param cacheInfo
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object
+     * @return the value, empty on a miss
+     */
+    Mono<Object> get(String key, CacheInfo cacheInfo);
+
+    /**
+     * <p>
+     * put.
+     * </p>
+     *
+     * @param keys
+     *            the global keys to write the value to
+     * @param value
+     *            the value, written with the ttl of the cache
+     * @param cacheInfo
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object
+     * @return a {@link reactor.core.publisher.Mono} completing once written
+     */
+    Mono<Void> put(List<String> keys, Object value, CacheInfo cacheInfo);
+
+    /**
+     * <p>
+     * getAll.
+     * </p>
+     *
+     * @param ids
+     *            the ids of a bulk cache
+     * @param cacheInfo
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object
+     * @return the values found by id
+     */
+    Mono<Map<Object, Object>> getAll(List<Object> ids, CacheInfo cacheInfo);
+
+    /**
+     * <p>
+     * putAll.
+     * </p>
+     *
+     * @param values
+     *            the values of a bulk cache by id
+     * @param cacheInfo
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.CacheInfo} object
+     * @return a {@link reactor.core.publisher.Mono} completing once written
+     */
+    Mono<Void> putAll(Map<Object, Object> values, CacheInfo cacheInfo);
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ * SingleFlightLoader class.
+ * </p>
+ *
+ * Keeps one in-flight load per cache key. The first subscriber that misses the
+ * cache runs the loader, later subscribers for the same key attach to its
+ * future until it completes.
+ *
+ * @author hoangtien2k3
+ */
+public class SingleFlightLoader {
+
+    private final AsyncCache<Object, Object> inFlight = Caffeine.newBuilder().buildAsync();
+    private final LongAdder loadedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * <p>
+     * load.
+     * </p>
+     *
+     * @param key
+     *            a {@link java.lang.Object} object
+     * @param loader
+     *            a {@link reactor.core.publisher.Mono} object
+     * @return a {@link reactor.core.publisher.Mono} object
+     */
+    public Mono<Object> load(Object key, Mono<Object> loader) {
+        return Mono.deferContextual(context -> {
+            CompletableFuture<Object> promise = new CompletableFuture<>();
+            CompletableFuture<Object> running = inFlight.asMap().putIfAbsent(key, promise);
+            if (running != null) {
+                coalescedCount.increment();
+                return Mono.fromFuture(running, true);
+            }
+            loadedCount.increment();
+            promise.whenComplete((value, error) -> inFlight.asMap().remove(key, promise));
+            loader.contextWrite(context)
+                    .subscribe(promise::complete, promise::completeExceptionally, () -> promise.complete(null));
+            // cancelling one subscriber must not cancel the load shared with the others
+            return Mono.fromFuture(promise, true);
+        });
+    }
+
+    /**
+     * <p>
+     * getLoadedCount.
+     * </p>
+     *
+     * @return a long
+     */
+    public long getLoadedCount() {
+        return loadedCount.sum();
+    }
+
+    /**
+     * <p>
+     * getCoalescedCount.
+     * </p>
+     *
+     * @return a long
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+}
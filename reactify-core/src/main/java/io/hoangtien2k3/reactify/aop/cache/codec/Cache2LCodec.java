@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import java.io.IOException;
+
+/**
+ * <p>
+ * Cache2LCodec interface.
+ * </p>
+ *
+ * Converts the values of the global cache to and from the bytes stored in
+ * Redis.
+ *
+ * @author hoangtien2k3
+ */
+public interface Cache2LCodec {
+
+    /**
+     * <p>
+     * encode.
+     * </p>
+     *
+     * @param value
+     *            a {@link java.lang.Object} object
+     * @return an array of {@link byte} objects
+     * @throws java.io.IOException
+     *             if the value can not be written.
+     */
+    byte[] encode(Object value) throws IOException;
+
+    /**
+     * <p>
+     * decode.
+     * </p>
+     *
+     * @param bytes
+     *            an array of {@link byte} objects
+     * @param type
+     *            the type of the cached value
+     * @return a {@link java.lang.Object} object
+     * @throws java.io.IOException
+     *             if the bytes can not be read as the given type.
+     */
+    default Object decode(byte[] bytes, JavaType type) throws IOException {
+        return decode(bytes, 0, bytes.length, type);
+    }
+
+    /**
+     * <p>
+     * decode.
+     * </p>
+     *
+     * @param bytes
+     *            an array of {@link byte} objects
+     * @param offset
+     *            index of the first byte of the value
+     * @param length
+     *            number of bytes of the value
+     * @param type
+     *            the type of the cached value
+     * @return a {@link java.lang.Object} object
+     * @throws java.io.IOException
+     *             if the bytes can not be read as the given type.
+     */
+    Object decode(byte[] bytes, int offset, int length, JavaType type) throws IOException;
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.hoangtien2k3.reactify.factory.ObjectMapperFactory;
+
+/**
+ * <p>
+ * Cache2LCodecs class.
+ * </p>
+ *
+ * @author hoangtien2k3
+ */
+public final class Cache2LCodecs {
+    private static final ObjectMapper JSON_MAPPER = ObjectMapperFactory.getInstance();
+    // same modules and features as the JSON mapper, only the wire format differs
+    private static final ObjectMapper SMILE_MAPPER = JSON_MAPPER.copyWith(new SmileFactory());
+    private static final ObjectMapper CBOR_MAPPER = JSON_MAPPER.copyWith(new CBORFactory());
+
+    private Cache2LCodecs() {}
+
+    /**
+     * <p>
+     * create.
+     * </p>
+     *
+     * @param codec
+     *            the value format, not
+     *            {@link io.hoangtien2k3.reactify.aop.cache.codec.RedisCodec#DEFAULT}
+     * @param lz4Threshold
+     *            minimum size in bytes of the values compressed with LZ4, a
+     *            negative value disables compression
+     * @param lz4MaxLength
+     *            maximum uncompressed size in bytes of an LZ4 value read back
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.codec.Cache2LCodec}
+     *         object
+     */
+    public static Cache2LCodec create(RedisCodec codec, int lz4Threshold, int lz4MaxLength) {
+        Cache2LCodec jacksonCodec =
+                switch (codec) {
+                    case SMILE -> new JacksonCache2LCodec(SMILE_MAPPER);
+                    case CBOR -> new JacksonCache2LCodec(CBOR_MAPPER);
+                    case JSON -> new JacksonCache2LCodec(JSON_MAPPER);
+                    case DEFAULT -> throw new IllegalArgumentException("Codec DEFAULT must be resolved first");
+                };
+        return lz4Threshold < 0 ? jacksonCodec : new Lz4Cache2LCodec(jacksonCodec, lz4Threshold, lz4MaxLength);
+    }
+}
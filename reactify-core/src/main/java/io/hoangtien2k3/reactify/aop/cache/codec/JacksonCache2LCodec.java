@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <p>
+ * JacksonCache2LCodec class.
+ * </p>
+ *
+ * Reads the bytes straight into the target type, without an intermediate tree.
+ *
+ * @author hoangtien2k3
+ */
+@RequiredArgsConstructor
+public class JacksonCache2LCodec implements Cache2LCodec {
+    private final ObjectMapper objectMapper;
+
+    /** {@inheritDoc} */
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object decode(byte[] bytes, int offset, int length, JavaType type) throws IOException {
+        return objectMapper.readValue(bytes, offset, length, type);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * <p>
+ * Lz4Cache2LCodec class.
+ * </p>
+ *
+ * Compresses the output of another codec with LZ4 when it is larger than the
+ * threshold. Every value starts with a one byte header, followed for
+ * compressed values by the uncompressed length. That length is read from Redis,
+ * it is checked against the maximum before the value is decompressed.
+ *
+ * @author hoangtien2k3
+ */
+public class Lz4Cache2LCodec implements Cache2LCodec {
+    private static final byte RAW = 0;
+    private static final byte LZ4 = 1;
+    private static final int LZ4_HEADER_LENGTH = 1 + Integer.BYTES;
+    // an LZ4 block expands at most 255 times
+    private static final int LZ4_MAX_RATIO = 255;
+
+    private final Cache2LCodec delegate;
+    private final int threshold;
+    private final int maxLength;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    /**
+     * <p>
+     * Constructor for Lz4Cache2LCodec.
+     * </p>
+     *
+     * @param delegate
+     *            the codec producing the uncompressed bytes
+     * @param threshold
+     *            minimum size in bytes of the values to compress
+     * @param maxLength
+     *            maximum uncompressed size in bytes of a decoded value
+     */
+    public Lz4Cache2LCodec(Cache2LCodec delegate, int threshold, int maxLength) {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.delegate = delegate;
+        this.threshold = threshold;
+        this.maxLength = maxLength;
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        byte[] raw = delegate.encode(value);
+        if (raw.length >= threshold) {
+            byte[] out = new byte[LZ4_HEADER_LENGTH + compressor.maxCompressedLength(raw.length)];
+            int length = compressor.compress(raw, 0, raw.length, out, LZ4_HEADER_LENGTH);
+            if (LZ4_HEADER_LENGTH + length < raw.length) {
+                out[0] = LZ4;
+                ByteBuffer.wrap(out, 1, Integer.BYTES).putInt(raw.length);
+                return Arrays.copyOf(out, LZ4_HEADER_LENGTH + length);
+            }
+        }
+        byte[] out = new byte[raw.length + 1];
+        out[0] = RAW;
+        System.arraycopy(raw, 0, out, 1, raw.length);
+        return out;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object decode(byte[] bytes, int offset, int length, JavaType type) throws IOException {
+        if (length == 0) {
+            throw new IOException("Empty cache value");
+        }
+        switch (bytes[offset]) {
+            case RAW:
+                return delegate.decode(bytes, offset + 1, length - 1, type);
+            case LZ4:
+                if (length < LZ4_HEADER_LENGTH) {
+                    throw new IOException("Truncated LZ4 cache value");
+                }
+                int rawLength = ByteBuffer.wrap(bytes, offset + 1, Integer.BYTES).getInt();
+                if (rawLength <= 0
+                        || rawLength > maxLength
+                        || rawLength / LZ4_MAX_RATIO > length - LZ4_HEADER_LENGTH) {
+                    throw new IOException("Invalid LZ4 cache value length " + rawLength);
+                }
+                byte[] raw = new byte[rawLength];
+                try {
+                    decompressor.decompress(bytes, offset + LZ4_HEADER_LENGTH, raw, 0, raw.length);
+                } catch (RuntimeException e) {
+                    throw new IOException("Corrupted LZ4 cache value", e);
+                }
+                return delegate.decode(raw, type);
+            default:
+                throw new IOException("Unknown cache value header " + bytes[offset]);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.codec;
+
+/**
+ * <p>
+ * RedisCodec enum.
+ * </p>
+ *
+ * Format of the values written to the global cache. Changing the format of a
+ * cache makes the entries already in Redis unreadable, they are reloaded as
+ * misses until they expire.
+ *
+ * @author hoangtien2k3
+ */
+public enum RedisCodec {
+    /** Use the {@code cache2l.redis.codec} property. */
+    DEFAULT,
+    /** Plain JSON, readable with redis-cli. */
+    JSON,
+    /** Jackson Smile, binary JSON with back-references to repeated names. */
+    SMILE,
+    /** CBOR (RFC 8949). */
+    CBOR
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.expiry;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * <p>
+ * CacheExpiry class.
+ * </p>
+ *
+ * Per-entry time to live: the resolver derives it from the value, otherwise the
+ * cache duration is shortened by a random jitter so that entries written
+ * together, e.g. by the warm-up, do not all expire at the same time. The
+ * duration is also the upper bound of a resolved time to live.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public class CacheExpiry implements Expiry<Object, Object> {
+
+    private final Duration duration;
+    private final long maxJitterNanos;
+    private final CacheTtlResolver resolver;
+
+    /**
+     * <p>
+     * Constructor for CacheExpiry.
+     * </p>
+     *
+     * @param duration
+     *            the time to live of an entry
+     * @param jitterPercent
+     *            the maximum share of the duration randomly removed from it
+     * @param resolver
+     *            the resolver of the time to live of a value, null to only use
+     *            the duration
+     */
+    public CacheExpiry(Duration duration, int jitterPercent, CacheTtlResolver resolver) {
+        this(duration, duration.toNanos() / 100 * Math.max(0, Math.min(jitterPercent, 100)), resolver);
+    }
+
+    private CacheExpiry(Duration duration, long maxJitterNanos, CacheTtlResolver resolver) {
+        this.duration = duration;
+        this.maxJitterNanos = maxJitterNanos;
+        this.resolver = resolver;
+    }
+
+    /**
+     * <p>
+     * ttlOf.
+     * </p>
+     *
+     * @param value
+     *            the cached value
+     * @return the time to live of the entry, zero when the value is already
+     *         expired
+     */
+    public Duration ttlOf(Object value) {
+        Duration ttl = resolvedTtlOf(value);
+        if (ttl != null) {
+            return ttl;
+        }
+        if (maxJitterNanos <= 0) {
+            return duration;
+        }
+        return duration.minusNanos(ThreadLocalRandom.current().nextLong(maxJitterNanos + 1));
+    }
+
+    /**
+     * <p>
+     * maxTtlOf.
+     * </p>
+     *
+     * @param value
+     *            the cached value
+     * @return the longest time the entry may live, the resolved time to live or
+     *         the duration without jitter
+     */
+    public Duration maxTtlOf(Object value) {
+        Duration ttl = resolvedTtlOf(value);
+        return ttl != null ? ttl : duration;
+    }
+
+    private Duration resolvedTtlOf(Object value) {
+        Object raw = value instanceof Optional<?> optional ? optional.orElse(null) : value;
+        if (resolver == null || raw == null) {
+            return null;
+        }
+        Duration ttl = resolve(raw);
+        if (ttl == null) {
+            return null;
+        }
+        return ttl.isNegative() ? Duration.ZERO : (ttl.compareTo(duration) < 0 ? ttl : duration);
+    }
+
+    private Duration resolve(Object value) {
+        try {
+            return resolver.resolve(value);
+        } catch (RuntimeException e) {
+            log.warn("Resolve cache ttl of {} fail", value.getClass().getName(), e);
+            return null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return ttlOf(value).toNanos();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return ttlOf(value).toNanos();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.expiry;
+
+import java.time.Duration;
+
+/**
+ * <p>
+ * CacheTtlResolver interface.
+ * </p>
+ *
+ * Derives the time to live of a cached entry from its value, e.g. from the
+ * expiry of a token. Implementations must be stateless and have a public no-arg
+ * constructor, one instance is shared by every cache declaring it.
+ *
+ * @author hoangtien2k3
+ */
+public interface CacheTtlResolver {
+
+    /**
+     * <p>
+     * resolve.
+     * </p>
+     *
+     * @param value
+     *            the cached value, unwrapped when the method returns an
+     *            {@link java.util.Optional}
+     * @return the time to live of the entry, null to use the duration of the
+     *         cache
+     */
+    Duration resolve(Object value);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.expiry;
+
+import java.time.Duration;
+
+/**
+ * <p>
+ * DefaultCacheTtlResolver class.
+ * </p>
+ *
+ * Gives every entry the duration of its cache.
+ *
+ * @author hoangtien2k3
+ */
+public class DefaultCacheTtlResolver implements CacheTtlResolver {
+
+    /** {@inheritDoc} */
+    @Override
+    public Duration resolve(Object value) {
+        return null;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.hotkey;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.Getter;
+
+/**
+ * <p>
+ * HotKeyDetector class.
+ * </p>
+ *
+ * Counts the Redis reads of the keys of one cache in a count-min sketch and
+ * keeps the top keys whose estimated count over the window reaches the
+ * threshold. At the end of each window the counts are halved, so a key stays
+ * hot only while it is still read. Counting is approximate and lock-free.
+ *
+ * @author hoangtien2k3
+ */
+public class HotKeyDetector {
+
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final AtomicLongArray counters;
+    private final int mask;
+    private final long threshold;
+    private final int topK;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final Map<String, Long> hotKeys = new ConcurrentHashMap<>();
+    private volatile Runnable hotKeysListener = () -> {};
+
+    @Getter
+    private final String cacheName;
+
+    @Getter
+    private final Duration pinDuration;
+
+    @Getter
+    private final int replicas;
+
+    /**
+     * <p>
+     * Constructor for HotKeyDetector.
+     * </p>
+     *
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @param properties
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyProperties}
+     *            object
+     */
+    public HotKeyDetector(String cacheName, HotKeyProperties properties) {
+        int width = Integer.highestOneBit(Math.max(16, properties.getSketchWidth() - 1) << 1);
+        this.counters = new AtomicLongArray(width * SEEDS.length);
+        this.mask = width - 1;
+        this.threshold = Math.max(1, properties.getThreshold());
+        this.topK = Math.max(1, properties.getTopK());
+        this.windowNanos = properties.getWindow().toNanos();
+        this.windowStart = new AtomicLong(System.nanoTime());
+        this.cacheName = cacheName;
+        this.pinDuration = properties.getPinDuration();
+        this.replicas = Math.max(0, properties.getReplicas());
+    }
+
+    /**
+     * <p>
+     * record.
+     * </p>
+     *
+     * @param key
+     *            the global key read from Redis
+     * @return true if the key is hot
+     */
+    public boolean record(String key) {
+        decayIfWindowEnded();
+        long hash = spread(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(indexOf(hash, row)));
+        }
+        if (estimate < threshold) {
+            return false;
+        }
+        if (hotKeys.size() < topK || hotKeys.containsKey(key)) {
+            if (hotKeys.put(key, estimate) == null) {
+                hotKeysListener.run();
+            }
+            return true;
+        }
+        // full, replace the coldest key if this one is hotter
+        Map.Entry<String, Long> coldest = null;
+        for (Map.Entry<String, Long> entry : hotKeys.entrySet()) {
+            if (coldest == null || entry.getValue() < coldest.getValue()) {
+                coldest = entry;
+            }
+        }
+        if (coldest != null && coldest.getValue() < estimate && hotKeys.remove(coldest.getKey(), coldest.getValue())) {
+            hotKeys.put(key, estimate);
+            hotKeysListener.run();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * <p>
+     * isHot.
+     * </p>
+     *
+     * @param key
+     *            the global key
+     * @return true if the key is hot
+     */
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * <p>
+     * hasHotKeys.
+     * </p>
+     *
+     * @return true if at least one key of the cache is hot
+     */
+    public boolean hasHotKeys() {
+        return !hotKeys.isEmpty();
+    }
+
+    /**
+     * <p>
+     * getHotKeys.
+     * </p>
+     *
+     * @return the hot keys with their estimated reads in the window
+     */
+    public Map<String, Long> getHotKeys() {
+        return Map.copyOf(hotKeys);
+    }
+
+    /**
+     * <p>
+     * readsOf.
+     * </p>
+     *
+     * @param key
+     *            the global key
+     * @return the estimated reads of the key in the window, 0 if it is not hot
+     */
+    public long readsOf(String key) {
+        return hotKeys.getOrDefault(key, 0L);
+    }
+
+    /**
+     * <p>
+     * onHotKeysChanged.
+     * </p>
+     *
+     * @param listener
+     *            run when a key becomes hot or cools down
+     */
+    public void onHotKeysChanged(Runnable listener) {
+        this.hotKeysListener = listener;
+    }
+
+    /**
+     * <p>
+     * randomReplicaKey.
+     * </p>
+     *
+     * @param key
+     *            the global key
+     * @return the key of a random copy of the entry
+     */
+    public String randomReplicaKey(String key) {
+        return replicaKey(key, ThreadLocalRandom.current().nextInt(replicas));
+    }
+
+    /**
+     * <p>
+     * replicaKeys.
+     * </p>
+     *
+     * @param key
+     *            the global key
+     * @return the keys of every copy of the entry
+     */
+    public List<String> replicaKeys(String key) {
+        List<String> keys = new ArrayList<>(replicas);
+        for (int replica = 0; replica < replicas; replica++) {
+            keys.add(replicaKey(key, replica));
+        }
+        return keys;
+    }
+
+    /**
+     * Keeps the cache name prefix so the copies are matched by the eviction of
+     * every entry, the hash tag puts each copy in its own cluster slot.
+     */
+    private String replicaKey(String key, int replica) {
+        return cacheName + ":{" + replica + ":" + key + "}";
+    }
+
+    private void decayIfWindowEnded() {
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+        hotKeys.replaceAll((key, count) -> count >>> 1);
+        if (hotKeys.values().removeIf(count -> count < threshold)) {
+            hotKeysListener.run();
+        }
+    }
+
+    private int indexOf(long hash, int row) {
+        long h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % SEEDS.length];
+        return row * (mask + 1) + (int) ((h ^ (h >>> 32)) & mask);
+    }
+
+    private static long spread(int hashCode) {
+        long h = hashCode * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.hotkey;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * HotKeyProperties class.
+ * </p>
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@ConfigurationProperties(prefix = "cache2l.hot-key", ignoreInvalidFields = true)
+@Data
+public class HotKeyProperties {
+    /** Detect the hot keys of the caches using the global cache. */
+    private boolean enabled = false;
+
+    /** Redis reads of a key in one window that make it hot. */
+    private long threshold = 1000;
+
+    /** Length of the window, the counts are halved at its end. */
+    private Duration window = Duration.ofSeconds(10);
+
+    /** Maximum number of hot keys tracked by cache. */
+    private int topK = 20;
+
+    /** Counters by row of the count-min sketch, rounded up to a power of two. */
+    private int sketchWidth = 4096;
+
+    /** Time to live of a hot key in the local cache, 0 keeps the cache ttl. */
+    private Duration pinDuration = Duration.ofMinutes(30);
+
+    /** Copies of a hot key written to Redis to spread its reads, 0 disables them. */
+    private int replicas = 0;
+}
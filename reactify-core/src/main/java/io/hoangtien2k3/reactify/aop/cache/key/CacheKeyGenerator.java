@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.key;
+
+/**
+ * <p>
+ * CacheKeyGenerator interface.
+ * </p>
+ *
+ * Builds the keys of a cached method call. Implementations must be stateless
+ * and have a public no-arg constructor, one instance is shared by every cache
+ * declaring it.
+ *
+ * @author hoangtien2k3
+ */
+public interface CacheKeyGenerator {
+
+    /**
+     * <p>
+     * generate.
+     * </p>
+     *
+     * @param args
+     *            the arguments of the cached method call
+     * @return the key of the entry in the local cache
+     */
+    Object generate(Object[] args);
+
+    /**
+     * <p>
+     * generateGlobalKey.
+     * </p>
+     *
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @param args
+     *            the arguments of the cached method call
+     * @return the key of the entry in the global (Redis) cache, it must be the
+     *         same on every instance for the same arguments
+     */
+    String generateGlobalKey(String cacheName, Object[] args);
+}
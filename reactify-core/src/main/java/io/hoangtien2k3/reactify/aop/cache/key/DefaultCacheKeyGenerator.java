@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.key;
+
+import java.lang.reflect.Array;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+
+/**
+ * <p>
+ * DefaultCacheKeyGenerator class.
+ * </p>
+ *
+ * Local keys follow {@link SimpleKeyGenerator}: no key object is allocated for
+ * methods without arguments or with a single argument. Global keys are built
+ * from the arguments' {@code toString()}, so argument types must have a
+ * value-based string representation. Each argument is written as
+ * {@code :<length>#<value>}, {@code :-} for null and {@code :*<size>} followed
+ * by the elements for an array, so distinct arguments never share a key.
+ *
+ * @author hoangtien2k3
+ */
+public class DefaultCacheKeyGenerator implements CacheKeyGenerator {
+
+    /** {@inheritDoc} */
+    @Override
+    public Object generate(Object[] args) {
+        return SimpleKeyGenerator.generateKey(args);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String generateGlobalKey(String cacheName, Object[] args) {
+        if (args.length == 0) {
+            return cacheName;
+        }
+        StringBuilder key = new StringBuilder(cacheName.length() + 16 * args.length).append(cacheName);
+        for (Object arg : args) {
+            appendArg(key, arg);
+        }
+        return key.toString();
+    }
+
+    private static void appendArg(StringBuilder key, Object arg) {
+        key.append(':');
+        if (arg == null) {
+            key.append('-');
+        } else if (arg.getClass().isArray()) {
+            int size = Array.getLength(arg);
+            key.append('*').append(size);
+            for (int i = 0; i < size; i++) {
+                appendArg(key, Array.get(arg, i));
+            }
+        } else {
+            // length prefix keeps ("a, b", "c") and ("a", "b, c") apart
+            String value = arg instanceof Enum<?> constant ? constant.name() : arg.toString();
+            key.append(value.length()).append('#').append(value);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.key;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * <p>
+ * Hash64CacheKeyGenerator class.
+ * </p>
+ *
+ * Hashes the arguments into a compact 64-bit key, a single integral argument is
+ * used as the key itself. Keys of different arguments may collide (about 3 in
+ * 10^8 for a million distinct keys), so only use it where that is acceptable.
+ *
+ * @author hoangtien2k3
+ */
+public class Hash64CacheKeyGenerator implements CacheKeyGenerator {
+
+    /** {@inheritDoc} */
+    @Override
+    public Object generate(Object[] args) {
+        return hash(args);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String generateGlobalKey(String cacheName, Object[] args) {
+        return cacheName + ":" + Long.toHexString(hash(args));
+    }
+
+    private static long hash(Object[] args) {
+        if (args.length == 1 && isIntegral(args[0])) {
+            return ((Number) args[0]).longValue();
+        }
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Object arg : args) {
+            putArg(hasher, arg);
+        }
+        return hasher.hash().asLong();
+    }
+
+    private static boolean isIntegral(Object arg) {
+        return arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte;
+    }
+
+    private static void putArg(Hasher hasher, Object arg) {
+        if (arg == null) {
+            hasher.putByte((byte) 0);
+        } else if (isIntegral(arg)) {
+            hasher.putByte((byte) 1).putLong(((Number) arg).longValue());
+        } else if (arg instanceof Double || arg instanceof Float) {
+            hasher.putByte((byte) 2).putDouble(((Number) arg).doubleValue());
+        } else if (arg instanceof Boolean value) {
+            hasher.putByte((byte) 3).putBoolean(value);
+        } else if (arg instanceof Character value) {
+            hasher.putByte((byte) 4).putChar(value);
+        } else {
+            // length prefix keeps ("ab", "c") and ("a", "bc") apart
+            String value = arg instanceof Enum<?> constant ? constant.name() : arg.toString();
+            hasher.putByte((byte) 5).putInt(value.length()).putUnencodedChars(value);
+        }
+    }
+}
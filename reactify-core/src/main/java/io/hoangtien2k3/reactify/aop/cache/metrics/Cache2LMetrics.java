@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.hoangtien2k3.reactify.aop.cache.SingleFlightLoader;
+import io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyDetector;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineStatsCounter;
+
+/**
+ * <p>
+ * Cache2LMetrics class.
+ * </p>
+ *
+ * Binds the caches to Micrometer. The local caches record their hits, misses
+ * and evictions by cause through a {@link CaffeineStatsCounter}, as
+ * {@code cache.gets}, {@code cache.evictions} and {@code cache.size} tagged by
+ * cache name. The stores build their caches in static initializers, so the
+ * registry is kept statically, {@link Metrics#globalRegistry} until the
+ * application registry is set.
+ *
+ * @author hoangtien2k3
+ */
+public final class Cache2LMetrics {
+
+    private static volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private Cache2LMetrics() {}
+
+    /**
+     * <p>
+     * setMeterRegistry.
+     * </p>
+     *
+     * @param registry
+     *            a {@link io.micrometer.core.instrument.MeterRegistry} object
+     */
+    public static void setMeterRegistry(MeterRegistry registry) {
+        if (registry != null) {
+            meterRegistry = registry;
+        }
+    }
+
+    /**
+     * <p>
+     * getMeterRegistry.
+     * </p>
+     *
+     * @return a {@link io.micrometer.core.instrument.MeterRegistry} object
+     */
+    public static MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * <p>
+     * build.
+     * </p>
+     *
+     * @param builder
+     *            a cache builder, without stats recording
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @param <K>
+     *            the type of the keys
+     * @param <V>
+     *            the type of the values
+     * @return the cache, recording its stats to the registry
+     */
+    public static <K, V> Cache<K, V> build(Caffeine<Object, Object> builder, String cacheName) {
+        CaffeineStatsCounter statsCounter = new CaffeineStatsCounter(meterRegistry, cacheName);
+        Cache<K, V> cache = builder.recordStats(() -> statsCounter).build();
+        statsCounter.registerSizeMetric(cache);
+        return cache;
+    }
+
+    /**
+     * <p>
+     * cacheMeters.
+     * </p>
+     *
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.metrics.CacheMeters}
+     *         object
+     */
+    public static CacheMeters cacheMeters(String cacheName) {
+        return new CacheMeters(meterRegistry, cacheName);
+    }
+
+    /**
+     * <p>
+     * monitorSingleFlight.
+     * </p>
+     *
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     * @param loader
+     *            a {@link io.hoangtien2k3.reactify.aop.cache.SingleFlightLoader}
+     *            object
+     */
+    public static void monitorSingleFlight(String cacheName, SingleFlightLoader loader) {
+        FunctionCounter.builder("cache2l.single.flight.loaded", loader, SingleFlightLoader::getLoadedCount)
+                .description("Cache misses that invoked the loader by key")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        FunctionCounter.builder("cache2l.single.flight.coalesced", loader, SingleFlightLoader::getCoalescedCount)
+                .description("Cache misses attached to an in-flight load by key")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * <p>
+     * monitorHotKeys.
+     * </p>
+     *
+     * The reads of each hot key are published as a gauge tagged by key, the set
+     * of gauges follows the hot keys as they change.
+     *
+     * @param detector
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.hotkey.HotKeyDetector}
+     *            object
+     */
+    public static void monitorHotKeys(HotKeyDetector detector) {
+        String cacheName = detector.getCacheName();
+        Gauge.builder("cache2l.hot.keys", detector, d -> d.getHotKeys().size())
+                .description("Number of hot keys by cache")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        MultiGauge reads = MultiGauge.builder("cache2l.hot.key.reads")
+                .description("Estimated Redis reads of a hot key in the current window")
+                .register(meterRegistry);
+        detector.onHotKeysChanged(() -> reads.register(
+                detector.getHotKeys().keySet().stream()
+                        .<MultiGauge.Row<?>>map(key -> MultiGauge.Row.of(
+                                Tags.of("cache", cacheName, "key", key), detector, d -> d.readsOf(key)))
+                        .toList(),
+                true));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ * CacheMeters class.
+ * </p>
+ *
+ * The meters of one cache that Caffeine does not record: the latency of the
+ * method loading a missing entry, the time spent in the Redis codec and the
+ * size of the Redis payloads. Built once per cache, recording is allocation
+ * free.
+ *
+ * @author hoangtien2k3
+ */
+public class CacheMeters {
+
+    private final Timer loadSuccess;
+    private final Timer loadFailure;
+    private final Timer encode;
+    private final Timer decode;
+    private final DistributionSummary readPayload;
+    private final DistributionSummary writePayload;
+
+    /**
+     * <p>
+     * Constructor for CacheMeters.
+     * </p>
+     *
+     * @param registry
+     *            a {@link io.micrometer.core.instrument.MeterRegistry} object
+     * @param cacheName
+     *            a {@link java.lang.String} object
+     */
+    public CacheMeters(MeterRegistry registry, String cacheName) {
+        this.loadSuccess = loadTimer(registry, cacheName, "success");
+        this.loadFailure = loadTimer(registry, cacheName, "failure");
+        this.encode = codecTimer(registry, cacheName, "encode");
+        this.decode = codecTimer(registry, cacheName, "decode");
+        this.readPayload = payloadSummary(registry, cacheName, "read");
+        this.writePayload = payloadSummary(registry, cacheName, "write");
+    }
+
+    private static Timer loadTimer(MeterRegistry registry, String cacheName, String result) {
+        return Timer.builder("cache2l.load")
+                .description("Latency of the cached method on a cache miss")
+                .tags("cache", cacheName, "result", result)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer codecTimer(MeterRegistry registry, String cacheName, String operation) {
+        return Timer.builder("cache2l.redis.codec")
+                .description("Time spent serializing the values of the Redis cache")
+                .tags("cache", cacheName, "operation", operation)
+                .register(registry);
+    }
+
+    private static DistributionSummary payloadSummary(MeterRegistry registry, String cacheName, String operation) {
+        return DistributionSummary.builder("cache2l.redis.payload.size")
+                .description("Size of the values read from and written to the Redis cache")
+                .baseUnit("bytes")
+                .tags("cache", cacheName, "operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * <p>
+     * timeLoad.
+     * </p>
+     *
+     * @param load
+     *            the invocation of the cached method
+     * @param <T>
+     *            the type of the value
+     * @return the invocation, timed from its subscription
+     */
+    public <T> Mono<T> timeLoad(Mono<T> load) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return load.doOnSuccess(value -> loadSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(e -> loadFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * <p>
+     * recordEncode.
+     * </p>
+     *
+     * @param startNanos
+     *            the {@link System#nanoTime()} before encoding
+     * @param size
+     *            the size of the encoded value
+     */
+    public void recordEncode(long startNanos, int size) {
+        encode.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        writePayload.record(size);
+    }
+
+    /**
+     * <p>
+     * recordDecode.
+     * </p>
+     *
+     * @param startNanos
+     *            the {@link System#nanoTime()} before decoding
+     * @param size
+     *            the size of the decoded value
+     */
+    public void recordDecode(long startNanos, int size) {
+        decode.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        readPayload.record(size);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * Cache2LRedisProperties class.
+ * </p>
+ *
+ * Client settings of the Cache2L Lettuce connection factories.
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@ConfigurationProperties(prefix = "cache2l.redis", ignoreInvalidFields = true)
+@Data
+public class Cache2LRedisProperties {
+    /** Timeout of one command, a cache read slower than this is a miss. */
+    private Duration commandTimeout = Duration.ofMillis(500);
+
+    /** Timeout of opening a connection. */
+    private Duration connectTimeout = Duration.ofMillis(500);
+
+    /** Time given to the client to finish on shutdown. */
+    private Duration shutdownTimeout = Duration.ofMillis(100);
+
+    /** Enable TCP keepalive so that dead connections are detected. */
+    private boolean keepAlive = true;
+
+    private Pool pool = new Pool();
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    private Pipelining pipelining = new Pipelining();
+
+    private ReplicaLag replicaLag = new ReplicaLag();
+
+    /**
+     * <p>
+     * Pool class.
+     * </p>
+     *
+     * Commons-pool2 pool of connections. While it is enabled the commands use
+     * pooled connections instead of the single shared one.
+     */
+    @Data
+    public static class Pool {
+        private boolean enabled = false;
+
+        private int maxTotal = 16;
+
+        private int maxIdle = 8;
+
+        private int minIdle = 2;
+
+        /** Time a command waits for a free connection. */
+        private Duration maxWait = Duration.ofMillis(200);
+    }
+
+    /**
+     * <p>
+     * WriteBehind class.
+     * </p>
+     *
+     * Queues the writes to the global cache and sends them in batches from a
+     * background writer, the response no longer waits for Redis.
+     */
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+
+        /** Maximum writes sent in one batch. */
+        private int batchSize = 64;
+
+        /** Maximum time a write waits for its batch to fill. */
+        private Duration flushInterval = Duration.ofMillis(5);
+
+        /** Distinct keys waiting for a flush, the writes of new keys beyond are dropped. */
+        private int queueCapacity = 10000;
+    }
+
+    /**
+     * <p>
+     * Pipelining class.
+     * </p>
+     *
+     * Sends each write-behind batch with a single flush on a dedicated
+     * connection, enables the write-behind. Not available with an external
+     * cluster.
+     */
+    @Data
+    public static class Pipelining {
+        private boolean enabled = false;
+    }
+
+    /**
+     * <p>
+     * ReplicaLag class.
+     * </p>
+     *
+     * Skips the replicas too far behind the master when the reads are routed
+     * among sentinel or static replicas, the master serves the reads when all
+     * of them lag.
+     */
+    @Data
+    public static class ReplicaLag {
+        private boolean enabled = true;
+
+        /** Replication offset, in bytes, a replica may be behind the master. */
+        private long maxOffsetLag = 1024 * 1024;
+
+        /** Interval of the INFO replication probe of the master. */
+        private Duration probeInterval = Duration.ofSeconds(1);
+    }
+}
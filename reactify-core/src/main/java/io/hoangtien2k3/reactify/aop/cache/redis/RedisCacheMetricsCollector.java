@@ -15,9 +15,11 @@
  */
 package io.hoangtien2k3.reactify.aop.cache.redis;
 
-import io.prometheus.client.Collector;
-import io.prometheus.client.CounterMetricFamily;
-import java.util.*;
+import io.hoangtien2k3.reactify.aop.cache.metrics.Cache2LMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.LongAdder;
 import org.springframework.stereotype.Component;
 
 /**
@@ -25,10 +27,13 @@ import org.springframework.stereotype.Component;
  * RedisCacheMetricsCollector class.
  * </p>
  *
+ * Registers the meters of the Redis cache, its circuit breakers and its
+ * write-behind in the registry of {@link Cache2LMetrics} as they are added.
+ *
  * @author hoangtien2k3
  */
 @Component
-public class RedisCacheMetricsCollector extends Collector {
+public class RedisCacheMetricsCollector {
 
     private final RedisCacheKeyCounter redisCacheKey;
 
@@ -56,30 +61,100 @@ public class RedisCacheMetricsCollector extends Collector {
      */
     public void addCache(String cacheName) {
         redisCacheKey.addCache(cacheName);
+        MeterRegistry registry = Cache2LMetrics.getMeterRegistry();
+        FunctionCounter.builder("redis.cache.hit", redisCacheKey, counter -> counter.getHitsByKey(cacheName))
+                .description("Redis Cache hit totals by key")
+                .tag("cache", cacheName)
+                .register(registry);
+        FunctionCounter.builder("redis.cache.miss", redisCacheKey, counter -> counter.getMissByKey(cacheName))
+                .description("Redis Cache miss totals by key")
+                .tag("cache", cacheName)
+                .register(registry);
+        FunctionCounter.builder(
+                        "redis.cache.request", redisCacheKey, counter -> counter.getRequestCountByKey(cacheName))
+                .description("Redis Cache request totals by key")
+                .tag("cache", cacheName)
+                .register(registry);
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public List<MetricFamilySamples> collect() {
-        List<MetricFamilySamples> mfs = new ArrayList<>();
-        List<String> labelNames = List.of("cache");
-        CounterMetricFamily cacheHitTotal =
-                new CounterMetricFamily("redis_cache_hit_total", "Redis Cache hit totals by key", labelNames);
-        mfs.add(cacheHitTotal);
-        CounterMetricFamily cacheMissTotal =
-                new CounterMetricFamily("redis_cache_miss_total", "Redis Cache miss totals by key", labelNames);
-        mfs.add(cacheMissTotal);
-        CounterMetricFamily cacheRequestTotal =
-                new CounterMetricFamily("redis_cache_request_total", "Redis Cache request totals by key", labelNames);
-        mfs.add(cacheRequestTotal);
-
-        Set<String> keys = redisCacheKey.getKeys();
-        for (String key : keys) {
-            List<String> redisKey = Collections.singletonList(key);
-            cacheHitTotal.addMetric(redisKey, (double) redisCacheKey.getHitsByKey(key));
-            cacheMissTotal.addMetric(redisKey, (double) redisCacheKey.getMissByKey(key));
-            cacheRequestTotal.addMetric(redisKey, (double) redisCacheKey.getRequestCountByKey(key));
+    /**
+     * <p>
+     * addCircuitBreaker.
+     * </p>
+     *
+     * @param circuitBreaker
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisCircuitBreaker}
+     *            object
+     */
+    public void addCircuitBreaker(RedisCircuitBreaker circuitBreaker) {
+        MeterRegistry registry = Cache2LMetrics.getMeterRegistry();
+        String node = circuitBreaker.getNode();
+        for (RedisCircuitBreaker.State state : RedisCircuitBreaker.State.values()) {
+            Gauge.builder(
+                            "redis.cache.circuit.breaker.state",
+                            circuitBreaker,
+                            breaker -> breaker.getState() == state ? 1 : 0)
+                    .description("Redis Cache circuit breaker state by node, 1 for the current state")
+                    .tags("node", node, "state", state.name().toLowerCase())
+                    .register(registry);
         }
-        return mfs;
+        FunctionCounter.builder("redis.cache.circuit.breaker.opened", circuitBreaker.getOpenedCount(), LongAdder::sum)
+                .description("Redis Cache circuit breaker open transitions by node")
+                .tag("node", node)
+                .register(registry);
+        FunctionCounter.builder(
+                        "redis.cache.circuit.breaker.rejected", circuitBreaker.getRejectedCount(), LongAdder::sum)
+                .description("Redis Cache calls rejected by an open circuit by node")
+                .tag("node", node)
+                .register(registry);
+    }
+
+    /**
+     * <p>
+     * setWriteBehind.
+     * </p>
+     *
+     * @param writeBehind
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisWriteBehind}
+     *            object
+     */
+    public void setWriteBehind(RedisWriteBehind writeBehind) {
+        MeterRegistry registry = Cache2LMetrics.getMeterRegistry();
+        Gauge.builder("redis.cache.write.behind.queue.size", writeBehind, RedisWriteBehind::getQueueSize)
+                .description("Redis Cache keys waiting for a write-behind flush")
+                .register(registry);
+        registerCounter(
+                registry,
+                "redis.cache.write.behind.enqueued",
+                "Redis Cache writes queued for a write-behind flush",
+                writeBehind.getEnqueuedCount());
+        registerCounter(
+                registry,
+                "redis.cache.write.behind.coalesced",
+                "Redis Cache writes merged into a queued write of the same key",
+                writeBehind.getCoalescedCount());
+        registerCounter(
+                registry,
+                "redis.cache.write.behind.dropped",
+                "Redis Cache writes dropped because the write-behind queue was full",
+                writeBehind.getDroppedCount());
+        registerCounter(
+                registry,
+                "redis.cache.write.behind.written",
+                "Redis Cache writes flushed by the write-behind",
+                writeBehind.getWrittenCount());
+        registerCounter(
+                registry,
+                "redis.cache.write.behind.failed",
+                "Redis Cache writes of failed write-behind batches",
+                writeBehind.getFailedCount());
+    }
+
+    private static void registerCounter(MeterRegistry registry, String name, String description, LongAdder count) {
+        FunctionCounter.builder(name, count, LongAdder::sum)
+                .description(description)
+                .register(registry);
     }
 }
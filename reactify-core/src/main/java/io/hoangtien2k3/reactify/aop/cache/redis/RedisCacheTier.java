@@ -0,0 +1,495 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import io.hoangtien2k3.reactify.aop.cache.CacheInfo;
+import io.hoangtien2k3.reactify.aop.cache.GlobalCacheInfo;
+import io.hoangtien2k3.reactify.aop.cache.RemoteCacheTier;
+import io.lettuce.core.RedisException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <p>
+ * RedisCacheTier class.
+ * </p>
+ *
+ * The Redis tier of the {@link io.hoangtien2k3.reactify.aop.cache.Cache2L}
+ * caches. Reads go to the replicas and fall back to the master, each node is
+ * guarded by a {@link RedisCircuitBreaker} and writes may be batched by a
+ * {@link RedisWriteBehind}. A failing node never fails the call, it reads as a
+ * miss and drops the write.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+@Component
+public class RedisCacheTier implements RemoteCacheTier {
+
+    @Value("${cache2l.enable-global-cache:false}")
+    private boolean enableGlobalCache;
+
+    @Value("${cache2l.redis.externalMode:false}")
+    private boolean isExternalRedis;
+
+    private static final byte[] NEGATIVE_VALUE = new byte[0];
+    private final Map<RedisCircuitBreaker, ReactiveRedisTemplate<String, byte[]>> circuitBreakers =
+            new LinkedHashMap<>();
+    private RedisCircuitBreaker readCircuitBreaker;
+    private RedisCircuitBreaker writeCircuitBreaker;
+    private Disposable probeTask;
+    private Disposable replicaLagTask;
+    private RedisWriteBehind writeBehind;
+
+    @Qualifier("redisMasterCache2LTemplate")
+    @Autowired(required = false)
+    private RedisTemplate<Object, Object> redisMasterTemplate;
+
+    @Qualifier("reactiveRedisMasterCache2LTemplate")
+    @Autowired(required = false)
+    private ReactiveRedisTemplate<String, byte[]> reactiveRedisMasterTemplate;
+
+    @Qualifier("reactiveRedisSlaveCache2LTemplate")
+    @Autowired(required = false)
+    private ReactiveRedisTemplate<String, byte[]> reactiveRedisSlaveTemplate;
+
+    @Qualifier("reactiveRedisExternalCache2LTemplate")
+    @Autowired(required = false)
+    private ReactiveRedisTemplate<String, byte[]> reactiveRedisExternalTemplate;
+
+    @Autowired
+    private RedisCacheKeyCounter redisCacheKey;
+
+    @Autowired
+    private RedisCircuitBreakerProperties circuitBreakerProperties;
+
+    @Autowired
+    private Cache2LRedisProperties redisProperties;
+
+    @Autowired(required = false)
+    private RedisCacheMetricsCollector redisCacheMetricsCollector;
+
+    @Autowired(required = false)
+    private ReplicaLagReadFrom replicaLagReadFrom;
+
+    /**
+     * The breaker of the node serving the next read, the master while the
+     * circuit of the replicas is open, null if no node is available.
+     */
+    private RedisCircuitBreaker acquireReadCircuitBreaker() {
+        if (readCircuitBreaker != null && readCircuitBreaker.tryAcquire()) {
+            return readCircuitBreaker;
+        }
+        if (writeCircuitBreaker != null
+                && writeCircuitBreaker != readCircuitBreaker
+                && writeCircuitBreaker.tryAcquire()) {
+            return writeCircuitBreaker;
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Mono<Object> get(String key, CacheInfo cacheInfo) {
+        if (!enableGlobalCache) {
+            return Mono.empty();
+        }
+        RedisCircuitBreaker circuitBreaker = acquireReadCircuitBreaker();
+        if (circuitBreaker == null) {
+            return Mono.empty();
+        }
+        return circuitBreakers
+                .get(circuitBreaker)
+                .opsForValue()
+                .get(key)
+                .doOnSuccess(value -> circuitBreaker.onSuccess())
+                .doOnError(e -> recordError(circuitBreaker, e))
+                .mapNotNull(value -> decodeValue(key, value, cacheInfo))
+                .doOnNext(value -> redisCacheKey.recordHit(cacheInfo.getName()))
+                .switchIfEmpty(Mono.fromRunnable(() -> redisCacheKey.recordMiss(cacheInfo.getName())))
+                .onErrorResume(e -> {
+                    log.error("Get redis with key {} fail ", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Decodes a value read from Redis, null if it can not be decoded.
+     */
+    private Object decodeValue(String key, byte[] value, CacheInfo cacheInfo) {
+        if (value.length == 0) {
+            // negative entry, codecs never produce an empty value
+            return cacheInfo.useNegativeCache() ? CacheInfo.NO_VALUE : null;
+        }
+        GlobalCacheInfo globalCacheInfo = cacheInfo.getGlobalCacheInfo();
+        try {
+            long start = System.nanoTime();
+            Object decoded = globalCacheInfo.getCodec().decode(value, globalCacheInfo.getJavaType());
+            cacheInfo.getMeters().recordDecode(start, value.length);
+            return decoded;
+        } catch (IOException e) {
+            // written by another codec or version of the type, reload it as a miss
+            log.warn("Decode value of redis key {} fail: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Encodes a value written to Redis, null if it can not be encoded.
+     */
+    private byte[] encodeValue(String key, Object value, CacheInfo cacheInfo) {
+        if (value == CacheInfo.NO_VALUE) {
+            return NEGATIVE_VALUE;
+        }
+        try {
+            long start = System.nanoTime();
+            byte[] encoded = cacheInfo.getGlobalCacheInfo().getCodec().encode(value);
+            cacheInfo.getMeters().recordEncode(start, encoded.length);
+            return encoded;
+        } catch (IOException e) {
+            log.error("Encode value of redis key {} fail", key, e);
+            return null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Mono<Void> put(List<String> keys, Object value, CacheInfo cacheInfo) {
+        RedisCircuitBreaker circuitBreaker = writeCircuitBreaker;
+        if (!enableGlobalCache || circuitBreaker == null) {
+            return Mono.empty();
+        }
+        byte[] bytes = encodeValue(keys.get(0), value, cacheInfo);
+        Duration ttl = cacheInfo.ttlOf(value);
+        if (bytes == null || !ttl.isPositive()) {
+            return Mono.empty();
+        }
+        if (writeBehind != null) {
+            if (isOpen(circuitBreaker)) {
+                return Mono.empty();
+            }
+            for (String key : keys) {
+                offerWrite(key, bytes, ttl);
+            }
+            return Mono.empty();
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            return Mono.empty();
+        }
+        ReactiveRedisTemplate<String, byte[]> template = circuitBreakers.get(circuitBreaker);
+        // SET with EX, one round trip instead of SET followed by EXPIRE
+        return Flux.fromIterable(keys)
+                .flatMap(key -> template.opsForValue().set(key, bytes, ttl))
+                .then()
+                .doOnSuccess(result -> circuitBreaker.onSuccess())
+                .doOnError(e -> recordError(circuitBreaker, e))
+                .onErrorResume(e -> {
+                    log.error("Write to global cache fail", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Mono<Map<Object, Object>> getAll(List<Object> ids, CacheInfo cacheInfo) {
+        if (!enableGlobalCache || !cacheInfo.useGlobalCache()) {
+            return Mono.just(Map.of());
+        }
+        RedisCircuitBreaker circuitBreaker = acquireReadCircuitBreaker();
+        if (circuitBreaker == null) {
+            return Mono.just(Map.of());
+        }
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            keys.add(cacheInfo.getKeyGenerator().generateGlobalKey(cacheInfo.getName(), new Object[] {id}));
+        }
+        return circuitBreakers
+                .get(circuitBreaker)
+                .opsForValue()
+                .multiGet(keys)
+                .doOnSuccess(values -> circuitBreaker.onSuccess())
+                .doOnError(e -> recordError(circuitBreaker, e))
+                .map(values -> {
+                    Map<Object, Object> found = new HashMap<>();
+                    for (int i = 0; i < values.size(); i++) {
+                        byte[] bytes = values.get(i);
+                        Object value = bytes == null ? null : decodeValue(keys.get(i), bytes, cacheInfo);
+                        if (value != null) {
+                            redisCacheKey.recordHit(cacheInfo.getName());
+                            found.put(ids.get(i), value);
+                        } else {
+                            redisCacheKey.recordMiss(cacheInfo.getName());
+                        }
+                    }
+                    return found;
+                })
+                .onErrorResume(e -> {
+                    log.error("Multi get {} redis keys of cache {} fail ", keys.size(), cacheInfo.getName(), e);
+                    return Mono.just(Map.of());
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Writes all the values without waiting for each reply, the commands are
+     * pipelined on the shared connection.
+     */
+    @Override
+    public Mono<Void> putAll(Map<Object, Object> values, CacheInfo cacheInfo) {
+        RedisCircuitBreaker circuitBreaker = writeCircuitBreaker;
+        if (values.isEmpty() || !enableGlobalCache || !cacheInfo.useGlobalCache() || circuitBreaker == null) {
+            return Mono.empty();
+        }
+        if (writeBehind != null) {
+            if (isOpen(circuitBreaker)) {
+                return Mono.empty();
+            }
+            return Mono.fromRunnable(() -> values.forEach((id, value) -> {
+                String key = cacheInfo.getKeyGenerator().generateGlobalKey(cacheInfo.getName(), new Object[] {id});
+                byte[] bytes = encodeValue(key, value, cacheInfo);
+                Duration ttl = cacheInfo.ttlOf(value);
+                if (bytes != null && ttl.isPositive()) {
+                    offerWrite(key, bytes, ttl);
+                }
+            }));
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            return Mono.empty();
+        }
+        ReactiveRedisTemplate<String, byte[]> template = circuitBreakers.get(circuitBreaker);
+        return Flux.fromIterable(values.entrySet())
+                .flatMap(entry -> {
+                    String key = cacheInfo.getKeyGenerator()
+                            .generateGlobalKey(cacheInfo.getName(), new Object[] {entry.getKey()});
+                    byte[] bytes = encodeValue(key, entry.getValue(), cacheInfo);
+                    Duration ttl = cacheInfo.ttlOf(entry.getValue());
+                    if (bytes == null || !ttl.isPositive()) {
+                        return Mono.empty();
+                    }
+                    return template.opsForValue().set(key, bytes, ttl);
+                })
+                .then()
+                .doOnSuccess(result -> circuitBreaker.onSuccess())
+                .doOnError(e -> recordError(circuitBreaker, e))
+                .onErrorResume(e -> {
+                    log.error("Write {} values to global cache fail", values.size(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * A queued write is not a call to the node: no permit is taken and no
+     * outcome reported, the flush of the write-behind reports the real one. The
+     * writes are only dropped while the circuit is open.
+     */
+    private static boolean isOpen(RedisCircuitBreaker circuitBreaker) {
+        return circuitBreaker.getState() == RedisCircuitBreaker.State.OPEN;
+    }
+
+    private void offerWrite(String key, byte[] bytes, Duration ttl) {
+        if (!writeBehind.offer(key, bytes, ttl)) {
+            log.debug("Redis write-behind queue is full, drop write of key {}", key);
+        }
+    }
+
+    /**
+     * <p>
+     * cancelWrites.
+     * </p>
+     *
+     * @param keys
+     *            the global keys whose queued writes are dropped, so that an
+     *            eviction is not undone by a later flush
+     */
+    public void cancelWrites(Collection<String> keys) {
+        if (writeBehind != null) {
+            keys.forEach(writeBehind::cancel);
+        }
+    }
+
+    /**
+     * <p>
+     * cancelWrites.
+     * </p>
+     *
+     * @param cacheName
+     *            the cache whose queued writes are dropped
+     */
+    public void cancelWrites(String cacheName) {
+        if (writeBehind != null) {
+            String prefix = cacheName + ":";
+            writeBehind.cancelIf(key -> key.equals(cacheName) || key.startsWith(prefix));
+        }
+    }
+
+    private void recordError(RedisCircuitBreaker circuitBreaker, Throwable e) {
+        if (e instanceof QueryTimeoutException
+                || e instanceof RedisException
+                || e instanceof RedisConnectionFailureException
+                || e instanceof RedisSystemException) {
+            circuitBreaker.onFailure();
+        } else {
+            // the node answered, the error is not about its availability
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * <p>
+     * initCircuitBreakers.
+     * </p>
+     */
+    @PostConstruct
+    public void initCircuitBreakers() {
+        if (!enableGlobalCache) {
+            return;
+        }
+        if (isExternalRedis) {
+            readCircuitBreaker = addCircuitBreaker("external", reactiveRedisExternalTemplate);
+            writeCircuitBreaker = readCircuitBreaker;
+        } else {
+            writeCircuitBreaker = addCircuitBreaker("master", reactiveRedisMasterTemplate);
+            readCircuitBreaker = addCircuitBreaker("slave", reactiveRedisSlaveTemplate);
+        }
+        initWriteBehind();
+        probeTask = Flux.interval(circuitBreakerProperties.getProbeInterval())
+                .onBackpressureDrop()
+                .subscribe(tick -> circuitBreakers.forEach(this::probe));
+        if (replicaLagReadFrom != null
+                && reactiveRedisMasterTemplate != null
+                && redisProperties.getReplicaLag().isEnabled()) {
+            replicaLagTask = Flux.interval(redisProperties.getReplicaLag().getProbeInterval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> probeReplicaLag(), 1)
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Reads the replication offsets from the master, so that the reads skip the
+     * replicas lagging behind it. Skipped while nothing routes reads among
+     * replicas or the master circuit is not closed.
+     */
+    private Mono<Void> probeReplicaLag() {
+        if (!replicaLagReadFrom.isRouting()
+                || writeCircuitBreaker == null
+                || writeCircuitBreaker.getState() != RedisCircuitBreaker.State.CLOSED) {
+            return Mono.empty();
+        }
+        return reactiveRedisMasterTemplate
+                .execute(connection -> connection.serverCommands().info("replication"))
+                .next()
+                .timeout(circuitBreakerProperties.getProbeTimeout())
+                // the replicas given by host name are resolved
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(replicaLagReadFrom::update)
+                .onErrorResume(e -> {
+                    log.debug("Can't read the replication offsets of the master: {}", e.toString());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void initWriteBehind() {
+        boolean pipelining = redisProperties.getPipelining().isEnabled();
+        if ((!redisProperties.getWriteBehind().isEnabled() && !pipelining) || writeCircuitBreaker == null) {
+            return;
+        }
+        if (pipelining && !isExternalRedis && redisMasterTemplate != null) {
+            writeBehind = RedisWriteBehind.pipelined(
+                    redisMasterTemplate, writeCircuitBreaker, redisProperties.getWriteBehind());
+        } else {
+            if (pipelining) {
+                log.warn("Redis write pipelining is not supported with an external cluster, batches are not pipelined");
+            }
+            writeBehind = RedisWriteBehind.reactive(
+                    circuitBreakers.get(writeCircuitBreaker), writeCircuitBreaker, redisProperties.getWriteBehind());
+        }
+        if (redisCacheMetricsCollector != null) {
+            redisCacheMetricsCollector.setWriteBehind(writeBehind);
+        }
+    }
+
+    private RedisCircuitBreaker addCircuitBreaker(String node, ReactiveRedisTemplate<String, byte[]> template) {
+        if (template == null) {
+            return null;
+        }
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(node, circuitBreakerProperties);
+        circuitBreakers.put(circuitBreaker, template);
+        if (redisCacheMetricsCollector != null) {
+            redisCacheMetricsCollector.addCircuitBreaker(circuitBreaker);
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Sends a PING to a node whose circuit is not closed, so that it recovers
+     * without waiting for live traffic. The command runs on the template's
+     * shared connection, no connection is opened per probe.
+     */
+    private void probe(RedisCircuitBreaker circuitBreaker, ReactiveRedisTemplate<String, byte[]> template) {
+        if (circuitBreaker.getState() == RedisCircuitBreaker.State.CLOSED || !circuitBreaker.tryAcquire()) {
+            return;
+        }
+        template.execute(connection -> connection.ping())
+                .next()
+                .timeout(circuitBreakerProperties.getProbeTimeout())
+                .subscribe(pong -> circuitBreaker.onSuccess(), e -> {
+                    log.warn(
+                            "Redis node {} is not available at the moment: {}",
+                            circuitBreaker.getNode(),
+                            e.toString());
+                    circuitBreaker.onFailure();
+                });
+    }
+
+    /**
+     * <p>
+     * destroy.
+     * </p>
+     */
+    @PreDestroy
+    public void destroy() {
+        if (probeTask != null) {
+            probeTask.dispose();
+        }
+        if (replicaLagTask != null) {
+            replicaLagTask.dispose();
+        }
+        if (writeBehind != null) {
+            writeBehind.dispose();
+        }
+    }
+}
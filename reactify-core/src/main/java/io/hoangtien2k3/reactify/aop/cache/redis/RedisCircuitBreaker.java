@@ -0,0 +1,230 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * <p>
+ * RedisCircuitBreaker class.
+ * </p>
+ *
+ * Circuit breaker of one Redis node. The failure rate is computed over a
+ * sliding window of one-second buckets. When it reaches the threshold the
+ * circuit opens and calls are rejected. After the open duration a limited
+ * number of probe calls are let through (half-open), the circuit closes once
+ * they all succeed and opens again on the first failure.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public class RedisCircuitBreaker {
+
+    /**
+     * <p>
+     * State enum.
+     * </p>
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    @Getter
+    private final String node;
+
+    private final RedisCircuitBreakerProperties properties;
+    private final Bucket[] buckets;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+    private volatile long stateChangedAt = System.nanoTime();
+
+    @Getter
+    private final LongAdder rejectedCount = new LongAdder();
+
+    @Getter
+    private final LongAdder openedCount = new LongAdder();
+
+    /**
+     * <p>
+     * Constructor for RedisCircuitBreaker.
+     * </p>
+     *
+     * @param node
+     *            name of the Redis node
+     * @param properties
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisCircuitBreakerProperties}
+     *            object
+     */
+    public RedisCircuitBreaker(String node, RedisCircuitBreakerProperties properties) {
+        this.node = node;
+        this.properties = properties;
+        this.buckets = new Bucket[Math.max(1, properties.getWindowSeconds())];
+        long expired = System.nanoTime() / NANOS_PER_SECOND - buckets.length;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(expired);
+        }
+    }
+
+    /**
+     * <p>
+     * getState.
+     * </p>
+     *
+     * @return a
+     *         {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisCircuitBreaker.State}
+     *         object
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * <p>
+     * tryAcquire.
+     * </p>
+     *
+     * @return true if a call to the node is permitted, every permitted call
+     *         must be followed by {@link #onSuccess()} or {@link #onFailure()}
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long elapsed = System.nanoTime() - stateChangedAt;
+        if (current == State.OPEN) {
+            if (elapsed < properties.getOpenDuration().toNanos()) {
+                rejectedCount.increment();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                halfOpenPermits.set(properties.getHalfOpenProbes());
+                halfOpenSuccesses.set(0);
+                stateChangedAt = System.nanoTime();
+                log.info("Redis node {} circuit half-open, probing", node);
+            }
+        } else if (elapsed >= properties.getOpenDuration().toNanos() && halfOpenPermits.get() <= 0) {
+            // probes were lost without an outcome, start a new open period
+            transitionToOpen(State.HALF_OPEN);
+        }
+        if (halfOpenPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    /**
+     * <p>
+     * onSuccess.
+     * </p>
+     */
+    public void onSuccess() {
+        if (state.get() == State.HALF_OPEN) {
+            if (halfOpenSuccesses.incrementAndGet() >= properties.getHalfOpenProbes()
+                    && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                resetWindow();
+                stateChangedAt = System.nanoTime();
+                log.info("Redis node {} circuit closed", node);
+            }
+            return;
+        }
+        currentBucket().successCount.increment();
+    }
+
+    /**
+     * <p>
+     * onFailure.
+     * </p>
+     */
+    public void onFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            transitionToOpen(State.HALF_OPEN);
+        } else if (current == State.CLOSED) {
+            currentBucket().failureCount.increment();
+            if (isFailureRateExceeded()) {
+                transitionToOpen(State.CLOSED);
+            }
+        }
+    }
+
+    private void transitionToOpen(State from) {
+        if (state.compareAndSet(from, State.OPEN)) {
+            stateChangedAt = System.nanoTime();
+            openedCount.increment();
+            log.warn("Redis node {} circuit opened for {}", node, properties.getOpenDuration());
+        }
+    }
+
+    private boolean isFailureRateExceeded() {
+        long second = System.nanoTime() / NANOS_PER_SECOND;
+        long failures = 0;
+        long total = 0;
+        for (Bucket bucket : buckets) {
+            if (second - bucket.second < buckets.length) {
+                long bucketFailures = bucket.failureCount.sum();
+                failures += bucketFailures;
+                total += bucketFailures + bucket.successCount.sum();
+            }
+        }
+        return total >= properties.getMinimumCalls() && failures * 100 >= total * properties.getFailureRateThreshold();
+    }
+
+    private Bucket currentBucket() {
+        long second = System.nanoTime() / NANOS_PER_SECOND;
+        Bucket bucket = buckets[(int) Math.floorMod(second, (long) buckets.length)];
+        if (bucket.second != second) {
+            synchronized (bucket) {
+                if (bucket.second != second) {
+                    bucket.successCount.reset();
+                    bucket.failureCount.reset();
+                    bucket.second = second;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private void resetWindow() {
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                bucket.successCount.reset();
+                bucket.failureCount.reset();
+            }
+        }
+    }
+
+    private static class Bucket {
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private volatile long second;
+
+        private Bucket(long second) {
+            this.second = second;
+        }
+    }
+}
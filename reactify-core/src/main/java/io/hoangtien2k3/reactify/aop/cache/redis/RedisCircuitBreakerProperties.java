@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * RedisCircuitBreakerProperties class.
+ * </p>
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@ConfigurationProperties(prefix = "cache2l.redis.circuit-breaker", ignoreInvalidFields = true)
+@Data
+public class RedisCircuitBreakerProperties {
+    /** Failure rate in percent over the window that opens the circuit. */
+    private int failureRateThreshold = 50;
+
+    /** Calls needed in the window before the failure rate is evaluated. */
+    private int minimumCalls = 20;
+
+    /** Length of the sliding window in seconds. */
+    private int windowSeconds = 10;
+
+    /** Time the circuit stays open before probes are let through. */
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    /** Successful probes needed in half-open state to close the circuit. */
+    private int halfOpenProbes = 3;
+
+    /** Interval of the PING probes sent to nodes whose circuit is not closed. */
+    private Duration probeInterval = Duration.ofSeconds(5);
+
+    /** Timeout of one PING probe. */
+    private Duration probeTimeout = Duration.ofSeconds(1);
+}
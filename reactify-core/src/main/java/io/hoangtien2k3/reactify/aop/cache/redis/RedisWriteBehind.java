@@ -0,0 +1,307 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <p>
+ * RedisWriteBehind class.
+ * </p>
+ *
+ * Takes the SET commands of the global cache off the caller's chain: a write is
+ * done once queued and a background writer sends the queue in batches. A key
+ * written again before its flush keeps only its latest value. The queue is
+ * bounded by distinct keys, a write to a new key beyond it is dropped and the
+ * entry is reloaded on its next miss. A failed batch is logged and counted by
+ * the circuit breaker.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public class RedisWriteBehind {
+
+    private final Consumer<List<Write>> writer;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<String> keys;
+    private final Map<String, Write> pending = new ConcurrentHashMap<>();
+    private final Scheduler scheduler;
+    private final Disposable task;
+    private volatile boolean running = true;
+
+    @Getter
+    private final LongAdder enqueuedCount = new LongAdder();
+
+    @Getter
+    private final LongAdder coalescedCount = new LongAdder();
+
+    @Getter
+    private final LongAdder droppedCount = new LongAdder();
+
+    @Getter
+    private final LongAdder writtenCount = new LongAdder();
+
+    @Getter
+    private final LongAdder failedCount = new LongAdder();
+
+    private record Write(String key, byte[] value, Duration ttl) {}
+
+    private RedisWriteBehind(
+            Consumer<List<Write>> writer,
+            RedisCircuitBreaker circuitBreaker,
+            Cache2LRedisProperties.WriteBehind properties) {
+        this.writer = writer;
+        this.circuitBreaker = circuitBreaker;
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.keys = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        // the writer blocks on each batch, it needs a thread that may block
+        this.scheduler = Schedulers.newBoundedElastic(1, 1, "cache2l-redis-write-behind", 60, true);
+        this.task = scheduler.schedule(this::drain);
+    }
+
+    /**
+     * <p>
+     * pipelined.
+     * </p>
+     *
+     * Sends each batch with a single flush through
+     * {@link RedisTemplate#executePipelined(RedisCallback)}, not available on a
+     * cluster connection.
+     *
+     * @param template
+     *            the template of the master node
+     * @param circuitBreaker
+     *            the circuit breaker of the master node
+     * @param properties
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.redis.Cache2LRedisProperties.WriteBehind}
+     *            object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisWriteBehind}
+     *         object
+     */
+    public static RedisWriteBehind pipelined(
+            RedisTemplate<Object, Object> template,
+            RedisCircuitBreaker circuitBreaker,
+            Cache2LRedisProperties.WriteBehind properties) {
+        return new RedisWriteBehind(
+                batch -> template.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Write write : batch) {
+                        connection
+                                .stringCommands()
+                                .set(
+                                        write.key().getBytes(StandardCharsets.UTF_8),
+                                        write.value(),
+                                        Expiration.from(write.ttl()),
+                                        RedisStringCommands.SetOption.upsert());
+                    }
+                    return null;
+                }),
+                circuitBreaker,
+                properties);
+    }
+
+    /**
+     * <p>
+     * reactive.
+     * </p>
+     *
+     * Sends the commands of each batch without waiting for each reply, Lettuce
+     * routes them to the node of each key.
+     *
+     * @param template
+     *            the template of the node receiving the writes
+     * @param circuitBreaker
+     *            the circuit breaker of the node
+     * @param properties
+     *            a
+     *            {@link io.hoangtien2k3.reactify.aop.cache.redis.Cache2LRedisProperties.WriteBehind}
+     *            object
+     * @return a {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisWriteBehind}
+     *         object
+     */
+    public static RedisWriteBehind reactive(
+            ReactiveRedisTemplate<String, byte[]> template,
+            RedisCircuitBreaker circuitBreaker,
+            Cache2LRedisProperties.WriteBehind properties) {
+        return new RedisWriteBehind(
+                batch -> Flux.fromIterable(batch)
+                        .flatMap(write -> template.opsForValue().set(write.key(), write.value(), write.ttl()))
+                        .then()
+                        .block(),
+                circuitBreaker,
+                properties);
+    }
+
+    /**
+     * <p>
+     * offer.
+     * </p>
+     *
+     * @param key
+     *            a {@link java.lang.String} object
+     * @param value
+     *            the encoded value
+     * @param ttl
+     *            a {@link java.time.Duration} object
+     * @return false if the queue is full and the write is dropped
+     */
+    public boolean offer(String key, byte[] value, Duration ttl) {
+        Write write = new Write(key, value, ttl);
+        boolean[] coalesced = new boolean[1];
+        // the key is claimed and queued under the lock of its entry, a concurrent
+        // write of the key either coalesces into a queued write or queues its own
+        Write queued = pending.compute(key, (k, previous) -> {
+            if (previous != null) {
+                coalesced[0] = true;
+                return write;
+            }
+            return keys.offer(k) ? write : null;
+        });
+        if (queued == null) {
+            droppedCount.increment();
+            return false;
+        }
+        if (coalesced[0]) {
+            // the queued key is flushed with the latest value
+            coalescedCount.increment();
+        } else {
+            enqueuedCount.increment();
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * cancel.
+     * </p>
+     *
+     * Drops the queued write of a key, a write already taken by a running flush
+     * is still sent.
+     *
+     * @param key
+     *            a {@link java.lang.String} object
+     */
+    public void cancel(String key) {
+        pending.remove(key);
+    }
+
+    /**
+     * <p>
+     * cancelIf.
+     * </p>
+     *
+     * @param keyFilter
+     *            selects the keys whose queued writes are dropped
+     */
+    public void cancelIf(Predicate<String> keyFilter) {
+        pending.keySet().removeIf(keyFilter);
+    }
+
+    /**
+     * <p>
+     * getQueueSize.
+     * </p>
+     *
+     * @return the number of keys waiting for a flush
+     */
+    public int getQueueSize() {
+        return keys.size();
+    }
+
+    private void drain() {
+        List<Write> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                String first = keys.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                addPending(first, batch);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    String next = keys.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    addPending(next, batch);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void addPending(String key, List<Write> batch) {
+        Write write = pending.remove(key);
+        if (write != null) {
+            batch.add(write);
+        }
+    }
+
+    private void flush(List<Write> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writer.accept(batch);
+            circuitBreaker.onSuccess();
+            writtenCount.add(batch.size());
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            failedCount.add(batch.size());
+            log.error("Write {} values to global cache fail", batch.size(), e);
+        }
+    }
+
+    /**
+     * <p>
+     * dispose.
+     * </p>
+     */
+    public void dispose() {
+        running = false;
+        task.dispose();
+        scheduler.dispose();
+    }
+}
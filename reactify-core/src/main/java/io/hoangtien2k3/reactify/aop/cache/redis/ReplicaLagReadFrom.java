@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.models.role.RedisNodeDescription;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * <p>
+ * ReplicaLagReadFrom class.
+ * </p>
+ *
+ * Routes the reads with the configured {@link ReadFrom} among the replicas
+ * whose replication offset is at most
+ * {@code cache2l.redis.replica-lag.max-offset-lag} bytes behind the master,
+ * and to the master when every selected replica lags. The lag is refreshed
+ * from {@code INFO replication} of the master by {@link RedisCacheTier}, a
+ * replica is used until its lag is first measured.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+public class ReplicaLagReadFrom extends ReadFrom {
+
+    private final ReadFrom delegate;
+    private final long maxOffsetLag;
+    private final boolean orderSensitive;
+    // endpoints of the nodes as configured, INFO replication reports the replicas by IP
+    private final Set<String> endpoints = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> laggingReplicas = Set.of();
+    private volatile boolean routing;
+
+    /**
+     * <p>
+     * Constructor for ReplicaLagReadFrom.
+     * </p>
+     *
+     * @param delegate
+     *            the routing among the replicas in sync
+     * @param maxOffsetLag
+     *            the replication offset, in bytes, a replica may be behind
+     */
+    public ReplicaLagReadFrom(ReadFrom delegate, long maxOffsetLag) {
+        this(delegate, maxOffsetLag, List.of());
+    }
+
+    /**
+     * <p>
+     * Constructor for ReplicaLagReadFrom.
+     * </p>
+     *
+     * @param delegate
+     *            the routing among the replicas in sync
+     * @param maxOffsetLag
+     *            the replication offset, in bytes, a replica may be behind
+     * @param replicas
+     *            the configured replicas as host:port, matched against the IPs
+     *            of {@code INFO replication} from the first refresh on
+     */
+    public ReplicaLagReadFrom(ReadFrom delegate, long maxOffsetLag, Collection<String> replicas) {
+        this.delegate = delegate;
+        this.maxOffsetLag = maxOffsetLag;
+        // ReadFrom#isOrderSensitive of the delegate is not visible from here
+        this.orderSensitive = delegate != ReadFrom.ANY && delegate != ReadFrom.ANY_REPLICA;
+        this.endpoints.addAll(replicas);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<RedisNodeDescription> select(Nodes nodes) {
+        routing = true;
+        List<RedisNodeDescription> selected = delegate.select(nodes);
+        Set<String> lagging = laggingReplicas;
+        if (lagging.isEmpty()) {
+            return selected;
+        }
+        List<RedisNodeDescription> inSync = new ArrayList<>(selected.size());
+        for (RedisNodeDescription node : selected) {
+            if (!node.getRole().isReplica() || !lagging.contains(endpoint(node))) {
+                inSync.add(node);
+            }
+        }
+        if (!inSync.isEmpty()) {
+            return inSync;
+        }
+        List<RedisNodeDescription> upstream = new ArrayList<>(1);
+        for (RedisNodeDescription node : nodes.getNodes()) {
+            if (node.getRole().isUpstream()) {
+                upstream.add(node);
+            }
+        }
+        return upstream;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isOrderSensitive() {
+        return orderSensitive;
+    }
+
+    /**
+     * <p>
+     * isRouting.
+     * </p>
+     *
+     * @return true once a connection routed its reads through this instance,
+     *         the lag is not worth measuring before
+     */
+    public boolean isRouting() {
+        return routing;
+    }
+
+    /**
+     * <p>
+     * update.
+     * </p>
+     *
+     * Replaces the lagging replicas with those of the {@code INFO replication}
+     * section of the master. May resolve host names, not to be called on an
+     * event loop.
+     *
+     * @param replication
+     *            the {@code INFO replication} section of the master
+     */
+    public void update(Properties replication) {
+        long masterOffset = parseLong(replication.getProperty("master_repl_offset"));
+        if (!"master".equals(replication.getProperty("role")) || masterOffset < 0) {
+            return;
+        }
+        Set<String> lagging = new HashSet<>();
+        for (String name : replication.stringPropertyNames()) {
+            // slave0:ip=10.0.0.2,port=6379,state=online,offset=1234,lag=0
+            if (!name.matches("slave\\d+")) {
+                continue;
+            }
+            Properties replica = new Properties();
+            for (String field : replication.getProperty(name).split(",")) {
+                int equals = field.indexOf('=');
+                if (equals > 0) {
+                    replica.setProperty(field.substring(0, equals), field.substring(equals + 1));
+                }
+            }
+            long offset = parseLong(replica.getProperty("offset"));
+            if (!"online".equals(replica.getProperty("state")) || offset < 0 || masterOffset - offset > maxOffsetLag) {
+                lagging.add(replica.getProperty("ip") + ":" + replica.getProperty("port"));
+            }
+        }
+        if (!lagging.isEmpty()) {
+            addConfiguredEndpoints(lagging);
+        }
+        if (!lagging.equals(laggingReplicas)) {
+            if (lagging.isEmpty()) {
+                log.info("Redis replicas are back in sync, reads are routed with {}", delegate);
+            } else {
+                log.warn("Redis replicas {} lag more than {} bytes, reads skip them", lagging, maxOffsetLag);
+            }
+        }
+        laggingReplicas = Set.copyOf(lagging);
+    }
+
+    private void addConfiguredEndpoints(Set<String> lagging) {
+        for (String endpoint : endpoints) {
+            int colon = endpoint.lastIndexOf(':');
+            try {
+                for (InetAddress address : InetAddress.getAllByName(endpoint.substring(0, colon))) {
+                    if (lagging.contains(address.getHostAddress() + endpoint.substring(colon))) {
+                        lagging.add(endpoint);
+                    }
+                }
+            } catch (UnknownHostException e) {
+                log.debug("Can't resolve Redis replica {}: {}", endpoint, e.toString());
+            }
+        }
+    }
+
+    private String endpoint(RedisNodeDescription node) {
+        String endpoint = node.getUri().getHost() + ":" + node.getUri().getPort();
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -61,6 +61,6 @@ public class RedisCache2lCollectorConfiguration {
      */
     @Bean(name = "redisCacheMetricsCollector")
     public RedisCacheMetricsCollector initRedisCacheMetricCollector(RedisCacheKeyCounter redisCacheKey) {
-        return new RedisCacheMetricsCollector(redisCacheKey).register();
+        return new RedisCacheMetricsCollector(redisCacheKey);
     }
 }
@@ -16,18 +16,20 @@
 package io.hoangtien2k3.reactify.aop.cache.redis.configuration;
 
 import io.hoangtien2k3.reactify.aop.cache.Cache2LUtils;
-import java.time.Duration;
+import io.hoangtien2k3.reactify.aop.cache.redis.Cache2LRedisProperties;
 import java.util.Arrays;
 import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 
 /**
@@ -49,6 +51,9 @@ public class RedisExternalCache2lConfiguration {
     @Value("${cache2l.redis.username:}")
     private String redisUsername;
 
+    @Autowired
+    private Cache2LRedisProperties redisProperties;
+
     /**
      * <p>
      * getLettuceConnectionFactory.
@@ -69,10 +74,7 @@ public class RedisExternalCache2lConfiguration {
             redisClusterConfiguration.setUsername(redisUsername);
         }
 
-        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
-                .commandTimeout(Duration.ofMillis(30000))
-                .build();
-        return new LettuceConnectionFactory(redisClusterConfiguration, clientConfig);
+        return Cache2LUtils.getLettuceConnectionFactory(redisClusterConfiguration, redisProperties, null);
     }
 
     /**
@@ -92,4 +94,24 @@ public class RedisExternalCache2lConfiguration {
             @Qualifier("redisClusterExternalConnectionFactory") RedisConnectionFactory redisConnectionFactory) {
         return Cache2LUtils.getRedisCache2lTemplate(redisConnectionFactory);
     }
+
+    /**
+     * <p>
+     * getReactiveRedisTemplate.
+     * </p>
+     *
+     * @param reactiveRedisConnectionFactory
+     *            a
+     *            {@link org.springframework.data.redis.connection.ReactiveRedisConnectionFactory}
+     *            object
+     * @return a {@link org.springframework.data.redis.core.ReactiveRedisTemplate}
+     *         object
+     */
+    @Bean(name = "reactiveRedisExternalCache2LTemplate")
+    @ConditionalOnExpression("'${cache2l.redis.externalCluster:}' != ''")
+    public ReactiveRedisTemplate<String, byte[]> getReactiveRedisTemplate(
+            @Qualifier("redisClusterExternalConnectionFactory")
+                    ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+        return Cache2LUtils.getReactiveRedisCache2lTemplate(reactiveRedisConnectionFactory);
+    }
 }
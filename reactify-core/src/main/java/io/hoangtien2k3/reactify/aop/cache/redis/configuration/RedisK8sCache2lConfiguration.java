@@ -15,18 +15,30 @@
  */
 package io.hoangtien2k3.reactify.aop.cache.redis.configuration;
 
+import io.hoangtien2k3.reactify.DataUtil;
 import io.hoangtien2k3.reactify.aop.cache.Cache2LUtils;
-import java.time.Duration;
+import io.hoangtien2k3.reactify.aop.cache.redis.Cache2LRedisProperties;
+import io.hoangtien2k3.reactify.aop.cache.redis.ReplicaLagReadFrom;
+import io.lettuce.core.ReadFrom;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
-import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 
 /**
@@ -41,21 +53,39 @@ import org.springframework.data.redis.core.RedisTemplate;
 @ConditionalOnExpression("${cache2l.enable-global-cache:false} and !${cache2l.redis.externalMode:false}")
 public class RedisK8sCache2lConfiguration {
 
-    @Value("${cache2l.redis.master.host}")
+    @Value("${cache2l.redis.master.host:}")
     private String redisMasterHost;
 
-    @Value("${cache2l.redis.slave.host}")
+    @Value("${cache2l.redis.slave.host:}")
     private String redisSlaveHost;
 
-    @Value("${cache2l.redis.master.port}")
+    @Value("${cache2l.redis.master.port:6379}")
     private int redisMasterPort;
 
-    @Value("${cache2l.redis.slave.port}")
+    @Value("${cache2l.redis.slave.port:6379}")
     private int redisSlavePort;
 
     @Value("${cache2l.redis.password:}")
     private String redisPassword;
 
+    /** Replica endpoints as host:port, the reads are routed among them. */
+    @Value("${cache2l.redis.replicas:}")
+    private List<String> redisReplicas;
+
+    @Value("${cache2l.redis.sentinel.master:}")
+    private String sentinelMaster;
+
+    /** Sentinel endpoints as host:port, used with the sentinel master name. */
+    @Value("${cache2l.redis.sentinel.nodes:}")
+    private Set<String> sentinelNodes;
+
+    /** Lettuce read routing of the slave connection, e.g. replicaPreferred. */
+    @Value("${cache2l.redis.read-from:lowestLatency}")
+    private String readFrom;
+
+    @Autowired
+    private Cache2LRedisProperties redisProperties;
+
     /**
      * <p>
      * redisMasterConnectionFactory.
@@ -67,7 +97,20 @@ public class RedisK8sCache2lConfiguration {
      */
     @Bean(name = "redisMasterConnectionFactory")
     public LettuceConnectionFactory redisMasterConnectionFactory() {
-        return getLettuceConnectionFactory(redisMasterHost, redisMasterPort);
+        if (useSentinel()) {
+            // the sentinels follow the failover of the master
+            return masterConnectionFactory(sentinelConfiguration(), ReadFrom.UPSTREAM);
+        }
+        return masterConnectionFactory(standaloneConfiguration(redisMasterHost, redisMasterPort), null);
+    }
+
+    private LettuceConnectionFactory masterConnectionFactory(RedisConfiguration redisConfiguration, ReadFrom readFrom) {
+        LettuceConnectionFactory connectionFactory = getLettuceConnectionFactory(redisConfiguration, readFrom);
+        if (redisProperties.getPipelining().isEnabled()) {
+            // one flush per batch of RedisWriteBehind.pipelined
+            connectionFactory.setPipeliningFlushPolicy(LettuceConnection.PipeliningFlushPolicy.flushOnClose());
+        }
+        return connectionFactory;
     }
 
     /**
@@ -75,26 +118,91 @@ public class RedisK8sCache2lConfiguration {
      * redisSlaveConnectionFactory.
      * </p>
      *
+     * Routes the reads among the sentinel or static replicas with
+     * {@code cache2l.redis.read-from}, skipping those lagging behind the master,
+     * the master serves them when no replica is available. Without replicas it connects to the single slave node, or
+     * to the master if none is set.
+     *
      * @return a
      *         {@link org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory}
      *         object
      */
     @Bean(name = "redisSlaveConnectionFactory")
     public LettuceConnectionFactory redisSlaveConnectionFactory() {
-        return getLettuceConnectionFactory(redisSlaveHost, redisSlavePort);
+        if (useSentinel()) {
+            return getLettuceConnectionFactory(sentinelConfiguration(), replicaReadFrom());
+        }
+        List<RedisNode> replicas = replicaNodes();
+        if (!replicas.isEmpty()) {
+            RedisStaticMasterReplicaConfiguration configuration =
+                    new RedisStaticMasterReplicaConfiguration(redisMasterHost, redisMasterPort);
+            for (RedisNode node : replicas) {
+                configuration.node(node.getHost(), node.getPort());
+            }
+            if (!DataUtil.isNullOrEmpty(redisPassword)) {
+                configuration.setPassword(redisPassword);
+            }
+            log.info("Route cache2l reads among {} replicas with {}", replicas.size(), readFrom);
+            return getLettuceConnectionFactory(configuration, replicaReadFrom());
+        }
+        if (DataUtil.isNullOrEmpty(redisSlaveHost)) {
+            return getLettuceConnectionFactory(standaloneConfiguration(redisMasterHost, redisMasterPort), null);
+        }
+        return getLettuceConnectionFactory(standaloneConfiguration(redisSlaveHost, redisSlavePort), null);
+    }
+
+    /**
+     * <p>
+     * replicaLagReadFrom.
+     * </p>
+     *
+     * @return the read routing of the replicas, kept away from the lagging ones
+     *         by the probe of
+     *         {@link io.hoangtien2k3.reactify.aop.cache.redis.RedisCacheTier}
+     */
+    @Bean
+    public ReplicaLagReadFrom replicaLagReadFrom() {
+        return new ReplicaLagReadFrom(
+                ReadFrom.valueOf(readFrom),
+                redisProperties.getReplicaLag().getMaxOffsetLag(),
+                replicaNodes().stream().map(node -> node.getHost() + ":" + node.getPort()).toList());
+    }
+
+    private List<RedisNode> replicaNodes() {
+        return redisReplicas.stream()
+                .filter(replica -> !DataUtil.isNullOrEmpty(replica))
+                .map(replica -> RedisNode.fromString(replica.trim()))
+                .toList();
+    }
+
+    private ReadFrom replicaReadFrom() {
+        return redisProperties.getReplicaLag().isEnabled() ? replicaLagReadFrom() : ReadFrom.valueOf(readFrom);
+    }
+
+    private boolean useSentinel() {
+        return !DataUtil.isNullOrEmpty(sentinelMaster);
+    }
+
+    private RedisSentinelConfiguration sentinelConfiguration() {
+        RedisSentinelConfiguration configuration = new RedisSentinelConfiguration(sentinelMaster, sentinelNodes);
+        if (!DataUtil.isNullOrEmpty(redisPassword)) {
+            configuration.setPassword(redisPassword);
+        }
+        return configuration;
     }
 
-    private LettuceConnectionFactory getLettuceConnectionFactory(String redisHost, int redisPort) {
+    private RedisStandaloneConfiguration standaloneConfiguration(String redisHost, int redisPort) {
         RedisStandaloneConfiguration redisStandaloneConfiguration =
                 new RedisStandaloneConfiguration(redisHost, redisPort);
-        if (redisPassword != null && !redisPassword.isEmpty()) {
+        if (!DataUtil.isNullOrEmpty(redisPassword)) {
             redisStandaloneConfiguration.setPassword(redisPassword);
         }
+        return redisStandaloneConfiguration;
+    }
 
-        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
-                .commandTimeout(Duration.ofMillis(30000))
-                .build();
-        return new LettuceConnectionFactory(redisStandaloneConfiguration, clientConfig);
+    private LettuceConnectionFactory getLettuceConnectionFactory(
+            RedisConfiguration redisConfiguration, ReadFrom readFrom) {
+        return Cache2LUtils.getLettuceConnectionFactory(redisConfiguration, redisProperties, readFrom);
     }
 
     /**
@@ -130,4 +238,40 @@ public class RedisK8sCache2lConfiguration {
             @Qualifier("redisSlaveConnectionFactory") RedisConnectionFactory redisConnectionFactory) {
         return Cache2LUtils.getRedisCache2lTemplate(redisConnectionFactory);
     }
+
+    /**
+     * <p>
+     * reactiveRedisMasterTemplate.
+     * </p>
+     *
+     * @param reactiveRedisConnectionFactory
+     *            a
+     *            {@link org.springframework.data.redis.connection.ReactiveRedisConnectionFactory}
+     *            object
+     * @return a {@link org.springframework.data.redis.core.ReactiveRedisTemplate}
+     *         object
+     */
+    @Bean(name = "reactiveRedisMasterCache2LTemplate")
+    public ReactiveRedisTemplate<String, byte[]> reactiveRedisMasterTemplate(
+            @Qualifier("redisMasterConnectionFactory") ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+        return Cache2LUtils.getReactiveRedisCache2lTemplate(reactiveRedisConnectionFactory);
+    }
+
+    /**
+     * <p>
+     * reactiveRedisSlaveTemplate.
+     * </p>
+     *
+     * @param reactiveRedisConnectionFactory
+     *            a
+     *            {@link org.springframework.data.redis.connection.ReactiveRedisConnectionFactory}
+     *            object
+     * @return a {@link org.springframework.data.redis.core.ReactiveRedisTemplate}
+     *         object
+     */
+    @Bean(name = "reactiveRedisSlaveCache2LTemplate")
+    public ReactiveRedisTemplate<String, byte[]> reactiveRedisSlaveTemplate(
+            @Qualifier("redisSlaveConnectionFactory") ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+        return Cache2LUtils.getReactiveRedisCache2lTemplate(reactiveRedisConnectionFactory);
+    }
 }
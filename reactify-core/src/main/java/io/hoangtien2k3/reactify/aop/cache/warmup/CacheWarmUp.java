@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.warmup;
+
+import io.hoangtien2k3.reactify.annotations.LocalCache;
+import io.hoangtien2k3.reactify.aop.cache.Cache2L;
+import io.hoangtien2k3.reactify.aop.cache.Cache2LStore;
+import io.hoangtien2k3.reactify.aop.cache.Cache2LUtils;
+import io.hoangtien2k3.reactify.aop.cache.CacheSpec;
+import jakarta.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * <p>
+ * CacheWarmUp class.
+ * </p>
+ *
+ * Loads the auto load caches of {@link Cache2L} and {@link LocalCache} once the
+ * context is refreshed, a bounded number of methods at a time, each with a
+ * timeout and retries. A critical cache that still fails is retried in the
+ * background with a growing backoff. {@link #isReady()} turns true once every
+ * critical cache is loaded.
+ *
+ * @author hoangtien2k3
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class CacheWarmUp {
+
+    /**
+     * <p>
+     * Status enum.
+     * </p>
+     */
+    public enum Status {
+        PENDING,
+        LOADED,
+        FAILED
+    }
+
+    private final CacheWarmUpProperties properties;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Map<String, Status> statuses = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> criticalCaches = new ConcurrentHashMap<>();
+    private final Disposable.Composite tasks = Disposables.composite();
+
+    /**
+     * <p>
+     * warmUp.
+     * </p>
+     *
+     * @param event
+     *            a {@link org.springframework.context.event.ContextRefreshedEvent}
+     *            object
+     */
+    @EventListener
+    public void warmUp(ContextRefreshedEvent event) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        List<Method> methods = new ArrayList<>(Cache2LStore.getAutoLoadMethods());
+        for (Method method : methods) {
+            statuses.put(nameOf(method), Status.PENDING);
+            criticalCaches.put(nameOf(method), isCritical(method));
+        }
+        if (methods.isEmpty()) {
+            return;
+        }
+        log.info("Start auto load {} cache, {} at a time", methods.size(), properties.getParallelism());
+        long start = System.currentTimeMillis();
+        tasks.add(Flux.fromIterable(methods)
+                .flatMap(this::load, Math.max(1, properties.getParallelism()))
+                .doFinally(signal -> log.info(
+                        "Finish auto load {} cache in {} ms", methods.size(), System.currentTimeMillis() - start))
+                .subscribe());
+    }
+
+    private Mono<Void> load(Method method) {
+        String name = nameOf(method);
+        long start = System.currentTimeMillis();
+        return Cache2LUtils.invoke(method)
+                .timeout(properties.getTimeout())
+                .retryWhen(Retry.backoff(properties.getRetries(), properties.getRetryBackoff()))
+                .doOnSuccess(value -> {
+                    statuses.put(name, Status.LOADED);
+                    log.info("Auto load cache {} in {} ms", name, System.currentTimeMillis() - start);
+                })
+                .doOnError(e -> {
+                    statuses.put(name, Status.FAILED);
+                    log.error("Error when autoload cache {}", name, e);
+                    if (criticalCaches.get(name)) {
+                        retryInBackground(method);
+                    }
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Keeps loading a failed critical cache on its own subscription, so it
+     * doesn't hold a slot of the warm-up, until it loads and the instance turns
+     * ready.
+     */
+    private void retryInBackground(Method method) {
+        String name = nameOf(method);
+        tasks.add(Cache2LUtils.invoke(method)
+                .timeout(properties.getTimeout())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getRetryBackoff())
+                        .maxBackoff(properties.getCriticalRetryMaxBackoff())
+                        .doBeforeRetry(signal -> log.warn(
+                                "Retry autoload critical cache {}, attempt {}: {}",
+                                name,
+                                signal.totalRetries() + 1,
+                                signal.failure().toString())))
+                .subscribe(
+                        value -> {},
+                        e -> log.error("Stop retrying autoload critical cache {}", name, e),
+                        () -> {
+                            statuses.put(name, Status.LOADED);
+                            log.info("Auto load critical cache {} after retries", name);
+                        }));
+    }
+
+    /**
+     * <p>
+     * isReady.
+     * </p>
+     *
+     * @return true once the warm-up started and every critical cache is loaded
+     */
+    public boolean isReady() {
+        if (!started.get()) {
+            return false;
+        }
+        return statuses.entrySet().stream()
+                .noneMatch(entry -> criticalCaches.get(entry.getKey()) && entry.getValue() != Status.LOADED);
+    }
+
+    /**
+     * <p>
+     * getStatuses.
+     * </p>
+     *
+     * @return the warm-up status of every auto load cache by cache name
+     */
+    public Map<String, Status> getStatuses() {
+        return new LinkedHashMap<>(statuses);
+    }
+
+    /**
+     * <p>
+     * destroy.
+     * </p>
+     */
+    @PreDestroy
+    public void destroy() {
+        tasks.dispose();
+    }
+
+    private static String nameOf(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+
+    private static boolean isCritical(Method method) {
+        CacheSpec spec = CacheSpec.of(method);
+        return spec != null && spec.isCriticalWarmUp();
+    }
+}
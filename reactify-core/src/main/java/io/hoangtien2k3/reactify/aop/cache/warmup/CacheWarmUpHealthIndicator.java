@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.warmup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * CacheWarmUpHealthIndicator class.
+ * </p>
+ *
+ * DOWN until every auto load cache marked as critical is loaded. Add
+ * {@code cacheWarmUp} to the readiness group, e.g.
+ * {@code management.endpoint.health.group.readiness.include=readinessState,cacheWarmUp},
+ * to keep the pod out of the service meanwhile.
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheWarmUpHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmUp cacheWarmUp;
+
+    /** {@inheritDoc} */
+    @Override
+    public Health health() {
+        Health.Builder builder = cacheWarmUp.isReady() ? Health.up() : Health.down();
+        cacheWarmUp.getStatuses().forEach((name, status) -> builder.withDetail(name, status));
+        return builder.build();
+    }
+}
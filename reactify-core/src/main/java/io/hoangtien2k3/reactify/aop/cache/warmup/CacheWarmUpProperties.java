@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.warmup;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * CacheWarmUpProperties class.
+ * </p>
+ *
+ * @author hoangtien2k3
+ */
+@Component
+@ConfigurationProperties(prefix = "cache2l.warmup", ignoreInvalidFields = true)
+@Data
+public class CacheWarmUpProperties {
+    /** Auto load methods invoked at the same time. */
+    private int parallelism = 4;
+
+    /** Timeout of one invocation of an auto load method. */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /** Retries of a failed or timed out auto load method. */
+    private int retries = 2;
+
+    /** First backoff between the retries, doubled on each retry. */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Longest backoff between the background retries of a critical cache that
+     * failed its warm-up, retried until it loads.
+     */
+    private Duration criticalRetryMaxBackoff = Duration.ofMinutes(5);
+}
@@ -245,6 +245,9 @@ public final class Constants {
     /** Constant <code>MAX_BYTE=4096</code> */
     public static final int MAX_BYTE = 4096;
 
+    /** Constant <code>MAX_ELEMENTS=50</code> */
+    public static final int MAX_ELEMENTS = 50;
+
     public static class POOL {
         public static final String REST_CLIENT_POLL = "Rest-client-Pool"; // name of Rest client poll for https proxy
     }
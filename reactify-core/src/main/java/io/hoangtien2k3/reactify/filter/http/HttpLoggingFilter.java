@@ -16,8 +16,11 @@
 package io.hoangtien2k3.reactify.filter.http;
 
 import static io.hoangtien2k3.reactify.constants.Constants.MAX_BYTE;
+import static io.hoangtien2k3.reactify.constants.Constants.MAX_ELEMENTS;
 import static reactor.core.scheduler.Schedulers.single;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hoangtien2k3.reactify.BoundedJsonWriter;
 import io.hoangtien2k3.reactify.RequestUtils;
 import io.hoangtien2k3.reactify.TruncateUtils;
 import io.hoangtien2k3.reactify.constants.Constants;
@@ -60,6 +63,9 @@ import reactor.core.publisher.Mono;
 @Slf4j
 @RequiredArgsConstructor
 public class HttpLoggingFilter implements WebFilter, Ordered {
+    private static final BoundedJsonWriter BODY_WRITER =
+            new BoundedJsonWriter(new ObjectMapper(), MAX_BYTE, MAX_ELEMENTS);
+
     private final HttpLogProperties httpLogProperties;
 
     /**
@@ -191,14 +197,14 @@ public class HttpLoggingFilter implements WebFilter, Ordered {
                 && (contentType.includes(MediaType.APPLICATION_JSON)
                         || contentType.includes(MediaType.APPLICATION_JSON))
                 && gatewayContext.getRequestBody() != null) {
-            requestBody = TruncateUtils.truncateBody(gatewayContext.getRequestBody());
-            logs.add(String.format("%s", TruncateUtils.truncate(requestBody, MAX_BYTE)));
+            requestBody = writeBody(gatewayContext.getRequestBody());
+            logs.add(String.format("%s", requestBody));
         } else if (length > 0
                 && null != contentType
                 && (contentType.includes(MediaType.APPLICATION_FORM_URLENCODED))
                 && gatewayContext.getFormData() != null) {
-            requestBody = TruncateUtils.truncateBody(gatewayContext.getFormData());
-            logs.add(String.format("%s", TruncateUtils.truncate(requestBody, MAX_BYTE)));
+            requestBody = writeBody(gatewayContext.getFormData());
+            logs.add(String.format("%s", requestBody));
         } else {
             logs.add("-");
         }
@@ -232,8 +238,8 @@ public class HttpLoggingFilter implements WebFilter, Ordered {
         logs.add(String.format("%s", response.getStatusCode().value()));
         GatewayContext gatewayContext = exchange.getAttribute(GatewayContext.CACHE_GATEWAY_CONTEXT);
         if (gatewayContext.getReadResponseData()) {
-            String body = TruncateUtils.truncateBody(gatewayContext.getResponseBody());
-            logs.add(String.format("%s", TruncateUtils.truncate(body, MAX_BYTE)));
+            String body = writeBody(gatewayContext.getResponseBody());
+            logs.add(String.format("%s", body));
         }
         return Mono.empty();
     }
@@ -289,6 +295,22 @@ public class HttpLoggingFilter implements WebFilter, Ordered {
         msg.append(String.format("%s %s", prefix, message)).append("\n");
     }
 
+    /**
+     * Writes a body to JSON, stopping at {@code MAX_BYTE} bytes.
+     *
+     * @param body
+     *            the body to write
+     * @return the JSON of the body, truncated to {@code MAX_BYTE} bytes
+     */
+    private String writeBody(Object body) {
+        try {
+            return BODY_WRITER.write(body);
+        } catch (Exception e) {
+            log.error("Exception when parse body to string, ignore body", e);
+            return "Truncated and remove if has exception";
+        }
+    }
+
     /**
      * Truncates the body of the message list.
      *
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BoundedJsonWriterTest {
+
+    private static final int MAX_BYTES = 256;
+    // larger than the buffer of the generator, it flushes in the middle of the value
+    private static final int LARGE = 5000;
+
+    private final BoundedJsonWriter writer = new BoundedJsonWriter(new ObjectMapper(), MAX_BYTES, LARGE * 2);
+
+    @Test
+    void writesSmallValuesUnchanged() throws IOException {
+        assertThat(writer.write(Map.of("key", 1))).isEqualTo("{\"key\":1}");
+        assertThat(writer.write(List.of("a", "b"))).isEqualTo("[\"a\",\"b\"]");
+        assertThat(writer.write("text")).isEqualTo("\"text\"");
+    }
+
+    @Test
+    void cutsListsAtTheByteLimit() throws IOException {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < LARGE; i++) {
+            list.add("element-" + i);
+        }
+
+        assertTruncated(writer.write(list), "[\"element-0\",");
+    }
+
+    @Test
+    void cutsMapsAndNestedValuesAtTheByteLimit() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < LARGE; i++) {
+            map.put("key-" + i, Map.of("nested", List.of(i, i + 1, i + 2)));
+        }
+
+        assertTruncated(writer.write(map), "{\"key-0\":{\"nested\":[0,1,2]}");
+    }
+
+    @Test
+    void cutsStringsAtTheByteLimit() throws IOException {
+        assertTruncated(writer.write("x".repeat(LARGE * 10)), "\"xxx");
+    }
+
+    @Test
+    void writesAgainAfterACut() throws IOException {
+        writer.write("x".repeat(LARGE * 10));
+
+        assertThat(writer.write(List.of(1, 2))).isEqualTo("[1,2]");
+    }
+
+    @Test
+    void neverSplitsAMultibyteCharacter() throws IOException {
+        // shifts the cut over every byte of 2 and 3 byte characters, Jackson
+        // escapes the characters beyond the BMP
+        for (String character : List.of("é", "中", "€")) {
+            for (int prefix = 0; prefix < 3; prefix++) {
+                String value = "a".repeat(prefix) + character.repeat(LARGE);
+                String json = writer.write(value);
+
+                assertTruncated(json, "\"" + "a".repeat(prefix));
+                String content = json.substring(1 + prefix, json.length() - BoundedJsonWriter.TRUNCATED.length());
+                assertThat(content).isNotEmpty().isEqualTo(character.repeat(content.length() / character.length()));
+            }
+        }
+    }
+
+    @Test
+    void capsCollectionsMapsAndArrays() throws IOException {
+        BoundedJsonWriter capped = new BoundedJsonWriter(new ObjectMapper(), 4096, 3);
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            map.put("k" + i, i);
+        }
+
+        assertThat(capped.write(List.of(1, 2, 3, 4, 5, 6))).isEqualTo("[1,2,3,\"...(3 more)\"]");
+        assertThat(capped.write(map)).isEqualTo("{\"k0\":0,\"k1\":1,\"k2\":2,\"...\":\"2 more\"}");
+        assertThat(capped.write(new String[] {"a", "b", "c", "d"})).isEqualTo("[\"a\",\"b\",\"c\",\"...(1 more)\"]");
+        assertThat(capped.write(new int[] {1, 2, 3, 4})).isEqualTo("[1,2,3,4]");
+        assertThat(capped.write(List.of(1, 2, 3))).isEqualTo("[1,2,3]");
+    }
+
+    @Test
+    void capsNestedCollections() throws IOException {
+        BoundedJsonWriter capped = new BoundedJsonWriter(new ObjectMapper(), 4096, 2);
+
+        assertThat(capped.write(Map.of("list", List.of(1, 2, 3, 4))))
+                .isEqualTo("{\"list\":[1,2,\"...(2 more)\"]}");
+    }
+
+    @Test
+    void propagatesSerializationErrors() {
+        assertThatThrownBy(() -> writer.write(new Failing())).isInstanceOf(IOException.class);
+    }
+
+    private static void assertTruncated(String json, String prefix) {
+        assertThat(json).startsWith(prefix).endsWith(BoundedJsonWriter.TRUNCATED);
+        assertThat(json.getBytes(StandardCharsets.UTF_8).length)
+                .isLessThanOrEqualTo(MAX_BYTES)
+                .isGreaterThan(MAX_BYTES - 4);
+        assertThat(json).doesNotContain("�");
+    }
+
+    static class Failing {
+        public String getValue() {
+            throw new IllegalStateException("not serializable");
+        }
+    }
+}
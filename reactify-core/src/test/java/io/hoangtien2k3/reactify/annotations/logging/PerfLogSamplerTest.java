@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.annotations.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class PerfLogSamplerTest {
+
+    private final PerfLogProperties properties = new PerfLogProperties();
+    private final PerfLogSampler sampler = new PerfLogSampler(properties, null);
+
+    @Test
+    void bucketsTwicePerPowerOfTwo() {
+        assertThat(IntStream.rangeClosed(0, 8).map(duration -> PerfLogSampler.MethodStats.bucketOf(duration)))
+                .containsExactly(0, 1, 2, 3, 4, 4, 5, 5, 6);
+        assertThat(PerfLogSampler.MethodStats.bucketOf(-5)).isZero();
+        assertThat(PerfLogSampler.MethodStats.bucketOf(1_000)).isEqualTo(19);
+        assertThat(PerfLogSampler.MethodStats.bucketOf(Long.MAX_VALUE)).isEqualTo(63);
+    }
+
+    @Test
+    void computesTheTailOfRecentCalls() {
+        PerfLogSampler.MethodStats stats = new PerfLogSampler.MethodStats(Long.MAX_VALUE, 0.1);
+        assertThat(stats.record(1_000)).as("no tail before the first window").isFalse();
+
+        for (int i = 0; i < 90; i++) {
+            stats.record(1);
+        }
+        for (int i = 0; i < 9; i++) {
+            stats.record(1_000);
+        }
+        stats.computeTail();
+
+        assertThat(stats.record(1_000)).isTrue();
+        assertThat(stats.record(2_000)).isTrue();
+        // the empty buckets above the bulk of the calls hold no call, so they are in the tail
+        assertThat(stats.record(2)).isTrue();
+        assertThat(stats.record(1)).isFalse();
+    }
+
+    @Test
+    void neverSplitsABucketOfTheTail() {
+        PerfLogSampler.MethodStats stats = new PerfLogSampler.MethodStats(Long.MAX_VALUE, 0.1);
+        for (int i = 0; i < 80; i++) {
+            stats.record(1);
+        }
+        for (int i = 0; i < 20; i++) {
+            stats.record(1_000);
+        }
+        stats.computeTail();
+
+        assertThat(stats.record(1_000)).isFalse();
+        assertThat(stats.record(10_000)).isTrue();
+    }
+
+    @Test
+    void looksUpTheSlowThresholdByMethodClassThenPackage() throws NoSuchMethodException {
+        properties.setSlowThreshold(Duration.ofMillis(50));
+        properties.getSlowThresholds().put("java.lang.String.length", Duration.ofMillis(1));
+        properties.getSlowThresholds().put("java.lang.String", Duration.ofMillis(2));
+        properties.getSlowThresholds().put("java.lang", Duration.ofMillis(3));
+
+        assertThat(thresholdOf(String.class.getMethod("length"))).isEqualTo(1);
+        assertThat(thresholdOf(String.class.getMethod("isEmpty"))).isEqualTo(2);
+        assertThat(thresholdOf(Integer.class.getMethod("intValue"))).isEqualTo(3);
+        assertThat(thresholdOf(Duration.class.getMethod("toMillis"))).isEqualTo(50);
+    }
+
+    @Test
+    void samplesFastCallsAtTheSampleRate() throws NoSuchMethodException {
+        Method method = String.class.getMethod("length");
+        properties.setSampleRate(0);
+
+        assertThat(sampler.sample(method, "service", 1, false)).isFalse();
+
+        properties.setSampleRate(1);
+        assertThat(sampler.sample(method, "service", 1, false)).isTrue();
+    }
+
+    @Test
+    void keepsErrorsAndSlowCallsOverTheRateLimit() throws NoSuchMethodException {
+        Method method = String.class.getMethod("length");
+        properties.setSampleRate(1);
+        properties.setRateLimit(1);
+
+        long kept = IntStream.range(0, 10).filter(i -> sampler.sample(method, "service", 1, false)).count();
+        // a call racing with the start of a second may be let through
+        assertThat(kept).isBetween(1L, 2L);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(sampler.sample(method, "service", 1, true)).isTrue();
+            assertThat(sampler.sample(method, "service", 51, false)).isTrue();
+        }
+    }
+
+    private long thresholdOf(Method method) {
+        return sampler.statsOf(method).slowThreshold;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.hoangtien2k3.reactify.aop.cache.codec.JacksonCache2LCodec;
+import io.hoangtien2k3.reactify.aop.cache.expiry.CacheExpiry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final AtomicLong ticker = new AtomicLong();
+    private final List<Object[]> removals = new ArrayList<>();
+
+    @Test
+    void getsWhatWasPut() {
+        OffHeapCache cache = cache(false);
+
+        cache.put("key", "value");
+
+        assertThat(cache.getIfPresent("key")).isEqualTo("value");
+        assertThat(cache.getIfPresent("missing")).isNull();
+        assertThat(cache.estimatedSize()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsValuesLargerThanOneChunk() {
+        OffHeapCache cache = cache(false);
+        String value = "x".repeat(300_000);
+
+        cache.put("key", value);
+
+        assertThat(cache.getIfPresent("key")).isEqualTo(value);
+    }
+
+    @Test
+    void replacesAndInvalidates() {
+        OffHeapCache cache = cache(false);
+        cache.put("key", "first");
+
+        cache.put("key", "second");
+        assertThat(cache.getIfPresent("key")).isEqualTo("second");
+
+        cache.invalidate("key");
+        assertThat(cache.getIfPresent("key")).isNull();
+        // the listener is told of the key, not of the released value
+        assertThat(removals).extracting(removal -> removal[0]).containsExactly("key", "key");
+        assertThat(removals).extracting(removal -> removal[1]).containsOnlyNulls();
+        assertThat(removals).extracting(removal -> removal[2])
+                .containsExactly(RemovalCause.REPLACED, RemovalCause.EXPLICIT);
+    }
+
+    @Test
+    void loadsOnceWithMappingFunction() {
+        OffHeapCache cache = cache(false);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("key", key -> "loaded-" + loads.incrementAndGet())).isEqualTo("loaded-1");
+        assertThat(cache.get("key", key -> "loaded-" + loads.incrementAndGet())).isEqualTo("loaded-1");
+        assertThat(cache.get("missing", key -> null)).isNull();
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.asMap()).doesNotContainKey("missing");
+    }
+
+    @Test
+    void wrapsOptionalValues() {
+        OffHeapCache cache = cache(true);
+
+        cache.put("present", Optional.of("value"));
+        cache.put("empty", Optional.empty());
+
+        assertThat(cache.getIfPresent("present")).isEqualTo(Optional.of("value"));
+        assertThat(cache.getIfPresent("empty")).isNull();
+    }
+
+    @Test
+    void expiresAfterTheResolvedTtl() {
+        OffHeapCache cache = cache(false);
+        cache.put("key", "value");
+
+        ticker.addAndGet(TTL.minusSeconds(1).toNanos());
+        assertThat(cache.getIfPresent("key")).isEqualTo("value");
+
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(cache.getIfPresent("key")).isNull();
+    }
+
+    @Test
+    void exposesDecodedValuesThroughAsMap() {
+        OffHeapCache cache = cache(false);
+        cache.put("first", "one");
+        cache.put("second", "two");
+        ConcurrentMap<Object, Object> map = cache.asMap();
+
+        assertThat(map).hasSize(2).containsEntry("first", "one").containsEntry("second", "two");
+        assertThat(map.get("first")).isEqualTo("one");
+        assertThat(map.containsKey("second")).isTrue();
+        assertThat(map.remove("first")).isEqualTo("one");
+        assertThat(cache.getIfPresent("first")).isNull();
+
+        Iterator<Map.Entry<Object, Object>> iterator = map.entrySet().iterator();
+        assertThat(iterator.next()).isEqualTo(Map.entry("second", "two"));
+        iterator.remove();
+        assertThat(map).isEmpty();
+    }
+
+    @Test
+    void rejectsWritesThroughAsMap() {
+        ConcurrentMap<Object, Object> map = cache(false).asMap();
+
+        assertThatThrownBy(() -> map.putIfAbsent("key", "value")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> map.replace("key", "value")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void exposesDecodedValuesThroughPolicy() {
+        OffHeapCache cache = cache(false);
+        cache.put("key", "value");
+        Policy<Object, Object> policy = cache.policy();
+
+        assertThat(policy.getIfPresentQuietly("key")).isEqualTo("value");
+        assertThat(policy.getEntryIfPresentQuietly("key").getValue()).isEqualTo("value");
+        assertThat(policy.getEntryIfPresentQuietly("missing")).isNull();
+        assertThat(policy.eviction()).hasValueSatisfying(eviction -> {
+            assertThat(eviction.getMaximum()).isEqualTo(100);
+            assertThat(eviction.hottest(10)).containsEntry("key", "value");
+        });
+        assertThat(policy.expireAfterWrite()).isEmpty();
+    }
+
+    @Test
+    void encodesValuesWrittenThroughVariableExpiration() {
+        OffHeapCache cache = cache(false);
+        Policy.VarExpiration<Object, Object> expiration =
+                cache.policy().expireVariably().orElseThrow();
+
+        assertThat(expiration.put("key", "value", 1, TimeUnit.MINUTES)).isNull();
+        assertThat(expiration.putIfAbsent("key", "other", 1, TimeUnit.MINUTES)).isEqualTo("value");
+
+        assertThat(cache.getIfPresent("key")).isEqualTo("value");
+        assertThat(expiration.getExpiresAfter("key", TimeUnit.SECONDS)).hasValue(60);
+        assertThat(expiration.oldest(1)).containsEntry("key", "value");
+
+        assertThat(expiration.put("key", "newer", 2, TimeUnit.MINUTES)).isEqualTo("value");
+        assertThat(cache.getIfPresent("key")).isEqualTo("newer");
+        assertThat(expiration.getExpiresAfter("key", TimeUnit.SECONDS)).hasValue(120);
+    }
+
+    private OffHeapCache cache(boolean optional) {
+        return new OffHeapCache(
+                Caffeine.newBuilder().maximumSize(100).ticker(ticker::get).executor(Runnable::run),
+                "off-heap-test",
+                (key, value, cause) -> removals.add(new Object[] {key, value, cause}),
+                new JacksonCache2LCodec(new ObjectMapper()),
+                TypeFactory.defaultInstance().constructType(String.class),
+                optional,
+                new CacheExpiry(TTL, 0, null));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class SingleFlightLoaderTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void coalescesConcurrentLoadsOfAKey() {
+        Sinks.One<Object> result = Sinks.one();
+        Mono<Object> loader = loader(result);
+
+        Mono<Object> first = singleFlightLoader.load("key", loader).cache();
+        Mono<Object> second = singleFlightLoader.load("key", loader).cache();
+        first.subscribe();
+        second.subscribe();
+        result.tryEmitValue("value");
+
+        StepVerifier.create(first).expectNext("value").expectComplete().verify(TIMEOUT);
+        StepVerifier.create(second).expectNext("value").expectComplete().verify(TIMEOUT);
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlightLoader.getLoadedCount()).isEqualTo(1);
+        assertThat(singleFlightLoader.getCoalescedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void loadsDistinctKeysSeparately() {
+        Sinks.One<Object> result = Sinks.one();
+        Mono<Object> loader = loader(result);
+
+        singleFlightLoader.load("first", loader).subscribe();
+        singleFlightLoader.load("second", loader).subscribe();
+
+        assertThat(loads).hasValue(2);
+        assertThat(singleFlightLoader.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void loadsAgainOnceTheLoadCompleted() {
+        StepVerifier.create(singleFlightLoader.load("key", loader(Mono.just("first"))))
+                .expectNext("first")
+                .expectComplete()
+                .verify(TIMEOUT);
+        StepVerifier.create(singleFlightLoader.load("key", loader(Mono.just("second"))))
+                .expectNext("second")
+                .expectComplete()
+                .verify(TIMEOUT);
+
+        assertThat(loads).hasValue(2);
+        assertThat(singleFlightLoader.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void propagatesTheErrorToEveryWaiter() {
+        Sinks.One<Object> result = Sinks.one();
+        Mono<Object> loader = loader(result);
+
+        Mono<Object> first = singleFlightLoader.load("key", loader).cache();
+        Mono<Object> second = singleFlightLoader.load("key", loader).cache();
+        first.subscribe(value -> {}, error -> {});
+        second.subscribe(value -> {}, error -> {});
+        result.tryEmitError(new IllegalStateException("load failed"));
+
+        StepVerifier.create(first).expectError(IllegalStateException.class).verify(TIMEOUT);
+        StepVerifier.create(second).expectError(IllegalStateException.class).verify(TIMEOUT);
+        assertThat(loads).hasValue(1);
+
+        // a failed load is not kept, the next call loads again
+        StepVerifier.create(singleFlightLoader.load("key", loader(Mono.just("value"))))
+                .expectNext("value")
+                .expectComplete()
+                .verify(TIMEOUT);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void completesEmptyWhenTheLoaderIsEmpty() {
+        StepVerifier.create(singleFlightLoader.load("key", loader(Mono.empty())))
+                .expectComplete()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void keepsTheLoadWhenOneWaiterCancels() {
+        Sinks.One<Object> result = Sinks.one();
+        Mono<Object> loader = loader(result);
+
+        Disposable cancelled = singleFlightLoader.load("key", loader).subscribe();
+        Mono<Object> second = singleFlightLoader.load("key", loader).cache();
+        second.subscribe();
+        cancelled.dispose();
+        result.tryEmitValue("value");
+
+        StepVerifier.create(second).expectNext("value").expectComplete().verify(TIMEOUT);
+        assertThat(loads).hasValue(1);
+    }
+
+    private Mono<Object> loader(Sinks.One<Object> result) {
+        return loader(result.asMono());
+    }
+
+    private Mono<Object> loader(Mono<Object> result) {
+        return Mono.defer(() -> {
+            loads.incrementAndGet();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class Lz4Cache2LCodecTest {
+
+    private static final JavaType STRING = TypeFactory.defaultInstance().constructType(String.class);
+
+    private final Lz4Cache2LCodec codec = new Lz4Cache2LCodec(new JacksonCache2LCodec(new ObjectMapper()), 64, 4096);
+
+    @Test
+    void keepsSmallValuesRaw() throws IOException {
+        byte[] bytes = codec.encode("small");
+
+        assertThat(bytes[0]).isZero();
+        assertThat(codec.decode(bytes, 0, bytes.length, STRING)).isEqualTo("small");
+    }
+
+    @Test
+    void compressesLargeValues() throws IOException {
+        String value = "x".repeat(1000);
+        byte[] bytes = codec.encode(value);
+
+        assertThat(bytes[0]).isEqualTo((byte) 1);
+        assertThat(bytes.length).isLessThan(value.length());
+        assertThat(codec.decode(bytes, 0, bytes.length, STRING)).isEqualTo(value);
+    }
+
+    @Test
+    void rejectsInvalidUncompressedLengths() throws IOException {
+        byte[] bytes = codec.encode("x".repeat(1000));
+
+        for (int length : new int[] {0, -1, Integer.MIN_VALUE, 4097, Integer.MAX_VALUE}) {
+            byte[] corrupted = withLength(bytes, length);
+            assertThatThrownBy(() -> codec.decode(corrupted, 0, corrupted.length, STRING))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("length " + length);
+        }
+    }
+
+    @Test
+    void rejectsLengthsTheBlockCannotExpandTo() throws IOException {
+        Lz4Cache2LCodec unbounded =
+                new Lz4Cache2LCodec(new JacksonCache2LCodec(new ObjectMapper()), 64, Integer.MAX_VALUE);
+        byte[] bytes = withLength(unbounded.encode("x".repeat(1000)), 1 << 30);
+
+        assertThatThrownBy(() -> unbounded.decode(bytes, 0, bytes.length, STRING))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Invalid LZ4 cache value length");
+    }
+
+    @Test
+    void rejectsTruncatedValues() {
+        byte[] bytes = {1, 0, 0};
+
+        assertThatThrownBy(() -> codec.decode(bytes, 0, bytes.length, STRING))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Truncated LZ4 cache value");
+    }
+
+    private static byte[] withLength(byte[] bytes, int length) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy, 1, Integer.BYTES).putInt(length);
+        return copy;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.key;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class DefaultCacheKeyGeneratorTest {
+
+    private final DefaultCacheKeyGenerator generator = new DefaultCacheKeyGenerator();
+
+    @Test
+    void prefixesTheCacheName() {
+        assertThat(generator.generateGlobalKey("users", new Object[0])).isEqualTo("users");
+        assertThat(generator.generateGlobalKey("users", new Object[] {42L})).isEqualTo("users:2#42");
+        assertThat(generator.generateGlobalKey("users", new Object[] {TimeUnit.SECONDS, "a"}))
+                .isEqualTo("users:7#SECONDS:1#a");
+    }
+
+    @Test
+    void keepsArgumentBoundaries() {
+        assertThat(generator.generateGlobalKey("c", new Object[] {"a, b", "c"}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {"a", "b, c"}));
+        assertThat(generator.generateGlobalKey("c", new Object[] {"a:1#b"}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {"a", "b"}));
+        assertThat(generator.generateGlobalKey("c", new Object[] {"", ""}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {""}));
+    }
+
+    @Test
+    void tellsNullFromItsString() {
+        assertThat(generator.generateGlobalKey("c", new Object[] {null}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {"null"}));
+        assertThat(generator.generateGlobalKey("c", new Object[] {null, "a"}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {"a", null}));
+    }
+
+    @Test
+    void encodesArrayElements() {
+        assertThat(generator.generateGlobalKey("c", new Object[] {new int[] {1, 2}}))
+                .isEqualTo(generator.generateGlobalKey("c", new Object[] {new int[] {1, 2}}));
+        assertThat(generator.generateGlobalKey("c", new Object[] {new String[] {"a, b"}}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {new String[] {"a", "b"}}));
+        assertThat(generator.generateGlobalKey("c", new Object[] {new Object[] {new Object[] {"a"}, "b"}}))
+                .isNotEqualTo(generator.generateGlobalKey("c", new Object[] {new Object[] {"a", new Object[] {"b"}}}));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 the original author Hoàng Anh Tiến.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hoangtien2k3.reactify.aop.cache.redis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+
+class RedisWriteBehindTest {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final String BLOCKING_KEY = "blocking";
+
+    private final CountDownLatch writerBlocked = new CountDownLatch(1);
+    private final CountDownLatch releaseWriter = new CountDownLatch(1);
+    private ReactiveValueOperations<String, byte[]> operations;
+    private RedisCircuitBreaker circuitBreaker;
+    private RedisWriteBehind writeBehind;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReactiveRedisTemplate<String, byte[]> template = mock(ReactiveRedisTemplate.class);
+        operations = mock(ReactiveValueOperations.class);
+        when(template.opsForValue()).thenReturn(operations);
+        when(operations.set(anyString(), any(byte[].class), any(Duration.class))).thenReturn(Mono.just(true));
+        // the write of the blocking key holds the writer until released
+        when(operations.set(eq(BLOCKING_KEY), any(byte[].class), any(Duration.class)))
+                .thenReturn(Mono.fromCallable(() -> {
+                    writerBlocked.countDown();
+                    return releaseWriter.await(5, TimeUnit.SECONDS);
+                }));
+        circuitBreaker = new RedisCircuitBreaker("master", new RedisCircuitBreakerProperties());
+
+        Cache2LRedisProperties.WriteBehind properties = new Cache2LRedisProperties.WriteBehind();
+        properties.setBatchSize(16);
+        properties.setFlushInterval(Duration.ofMillis(1));
+        properties.setQueueCapacity(2);
+        writeBehind = RedisWriteBehind.reactive(template, circuitBreaker, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseWriter.countDown();
+        writeBehind.dispose();
+    }
+
+    @Test
+    void flushesQueuedWrites() {
+        assertThat(writeBehind.offer("key", value("value"), TTL)).isTrue();
+
+        verify(operations, timeout(1000)).set(eq("key"), aryEq(value("value")), eq(TTL));
+        assertThat(writeBehind.getEnqueuedCount().sum()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsOnlyTheLatestValueOfAQueuedKey() throws InterruptedException {
+        blockWriter();
+
+        assertThat(writeBehind.offer("key", value("first"), TTL)).isTrue();
+        assertThat(writeBehind.offer("key", value("second"), TTL)).isTrue();
+        assertThat(writeBehind.getQueueSize()).isEqualTo(1);
+        releaseWriter.countDown();
+
+        verify(operations, timeout(1000)).set(eq("key"), aryEq(value("second")), eq(TTL));
+        verify(operations, never()).set(eq("key"), aryEq(value("first")), eq(TTL));
+        assertThat(writeBehind.getCoalescedCount().sum()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsWritesOfNewKeysBeyondCapacity() throws InterruptedException {
+        blockWriter();
+
+        assertThat(writeBehind.offer("first", value("value"), TTL)).isTrue();
+        assertThat(writeBehind.offer("second", value("value"), TTL)).isTrue();
+        assertThat(writeBehind.offer("third", value("value"), TTL)).isFalse();
+        // a queued key still takes its new value
+        assertThat(writeBehind.offer("first", value("latest"), TTL)).isTrue();
+        releaseWriter.countDown();
+
+        verify(operations, timeout(1000)).set(eq("first"), aryEq(value("latest")), eq(TTL));
+        verify(operations, timeout(1000)).set(eq("second"), aryEq(value("value")), eq(TTL));
+        verify(operations, never()).set(eq("third"), any(byte[].class), any(Duration.class));
+        assertThat(writeBehind.getDroppedCount().sum()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsCancelledWrites() throws InterruptedException {
+        blockWriter();
+
+        writeBehind.offer("cancelled", value("value"), TTL);
+        writeBehind.offer("kept", value("value"), TTL);
+        writeBehind.cancel("cancelled");
+        releaseWriter.countDown();
+
+        verify(operations, timeout(1000)).set(eq("kept"), aryEq(value("value")), eq(TTL));
+        verify(operations, after(100).never()).set(eq("cancelled"), any(byte[].class), any(Duration.class));
+    }
+
+    @Test
+    void countsFailedBatches() {
+        when(operations.set(eq("failing"), any(byte[].class), any(Duration.class)))
+                .thenReturn(Mono.error(new IllegalStateException("write failed")));
+
+        writeBehind.offer("failing", value("value"), TTL);
+
+        verify(operations, timeout(1000)).set(eq("failing"), any(byte[].class), any(Duration.class));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (writeBehind.getFailedCount().sum() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(writeBehind.getFailedCount().sum()).isEqualTo(1);
+        assertThat(writeBehind.getWrittenCount().sum()).isZero();
+    }
+
+    private void blockWriter() throws InterruptedException {
+        writeBehind.offer(BLOCKING_KEY, value("value"), TTL);
+        assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static byte[] value(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}